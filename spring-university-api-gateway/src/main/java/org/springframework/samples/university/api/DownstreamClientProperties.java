@@ -0,0 +1,81 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.university.api;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Connection pool settings of the {@link WebClientRegistry} clients.
+ * <p>
+ * {@code defaults} apply to every downstream service, {@code services} overrides them per service name and per setting:
+ * <pre>
+ * gateway.clients.defaults.max-connections=100
+ * gateway.clients.services.exams-service.pending-acquire-max-count=500
+ * </pre>
+ * Here exams-service gets 100 connections and 500 pending acquires, other services 100 connections and the built-in
+ * pending acquire count.
+ */
+@ConfigurationProperties("gateway.clients")
+public record DownstreamClientProperties(Pool defaults, Map<String, Pool> services) {
+
+    private static final Pool UNSET = new Pool(null, null, null, null, null);
+
+    public DownstreamClientProperties {
+        if (defaults == null) {
+            defaults = UNSET;
+        }
+        if (services == null) {
+            services = Map.of();
+        }
+    }
+
+    /**
+     * @return the pool settings of the service, each taken from the service, else from the defaults, else built in
+     */
+    public Pool poolFor(String service) {
+        Pool pool = services.getOrDefault(service, UNSET).orElse(defaults);
+        int maxConnections = pool.maxConnections() != null ? pool.maxConnections() : 50;
+        return new Pool(
+            maxConnections,
+            pool.maxIdleTime() != null ? pool.maxIdleTime() : Duration.ofSeconds(30),
+            pool.evictInBackground() != null ? pool.evictInBackground() : Duration.ofSeconds(60),
+            pool.pendingAcquireMaxCount() != null ? pool.pendingAcquireMaxCount() : 4 * maxConnections,
+            pool.pendingAcquireTimeout() != null ? pool.pendingAcquireTimeout() : Duration.ofSeconds(5));
+    }
+
+    /**
+     * Reactor Netty connection pool settings; unset (null) values fall back as described by {@link #poolFor}.
+     */
+    public record Pool(
+        Integer maxConnections,
+        Duration maxIdleTime,
+        Duration evictInBackground,
+        Integer pendingAcquireMaxCount,
+        Duration pendingAcquireTimeout) {
+
+        Pool orElse(Pool fallback) {
+            return new Pool(
+                maxConnections != null ? maxConnections : fallback.maxConnections(),
+                maxIdleTime != null ? maxIdleTime : fallback.maxIdleTime(),
+                evictInBackground != null ? evictInBackground : fallback.evictInBackground(),
+                pendingAcquireMaxCount != null ? pendingAcquireMaxCount : fallback.pendingAcquireMaxCount(),
+                pendingAcquireTimeout != null ? pendingAcquireTimeout : fallback.pendingAcquireTimeout());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.university.api;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings of the hedged exams lookups, see {@link org.springframework.samples.university.api.application.RequestHedger}.
+ *
+ * @param enabled      whether slow lookups are hedged at all
+ * @param percentile   latency percentile after which a duplicate request is sent
+ * @param initialDelay hedging delay used until enough latencies have been observed
+ * @param minDelay     lower bound of the hedging delay
+ * @param budgetRatio  maximum share of requests that may be hedged
+ */
+@ConfigurationProperties("gateway.hedging")
+public record HedgingProperties(
+    boolean enabled,
+    double percentile,
+    Duration initialDelay,
+    Duration minDelay,
+    double budgetRatio) {
+
+    public HedgingProperties {
+        if (percentile <= 0 || percentile >= 1) {
+            percentile = 0.95;
+        }
+        if (initialDelay == null) {
+            initialDelay = Duration.ofMillis(200);
+        }
+        if (minDelay == null) {
+            minDelay = Duration.ofMillis(10);
+        }
+        if (budgetRatio <= 0) {
+            budgetRatio = 0.1;
+        }
+    }
+}
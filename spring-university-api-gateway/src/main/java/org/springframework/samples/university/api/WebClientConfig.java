@@ -15,15 +15,19 @@
  */
 package org.springframework.samples.university.api;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.samples.university.api.application.RequestHedger;
 import org.springframework.web.reactive.function.client.WebClient;
 
 /**
  * Configuration class for WebClient with load balancing support.
  */
 @Configuration
+@EnableConfigurationProperties({DownstreamClientProperties.class, HedgingProperties.class})
 public class WebClientConfig {
 
     @Bean
@@ -31,5 +35,16 @@ public class WebClientConfig {
     public WebClient.Builder webClientBuilder() {
         return WebClient.builder();
     }
+
+    @Bean
+    public WebClientRegistry webClientRegistry(@LoadBalanced WebClient.Builder webClientBuilder,
+                                               DownstreamClientProperties properties) {
+        return new WebClientRegistry(webClientBuilder, properties);
+    }
+
+    @Bean
+    public RequestHedger examsRequestHedger(HedgingProperties properties, MeterRegistry registry) {
+        return new RequestHedger("getExamsForCourses", properties, registry);
+    }
 }
 
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.university.api;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one long-lived {@link WebClient} per downstream service, each backed by its own
+ * Reactor Netty connection pool. Pool gauges (active, idle, pending connections) are published
+ * under {@code reactor.netty.connection.provider.*} with the service name as {@code name} tag.
+ */
+public class WebClientRegistry implements DisposableBean {
+
+    public static final String STUDENTS_SERVICE = "students-service";
+    public static final String EXAMS_SERVICE = "exams-service";
+    public static final String PROFESSORS_SERVICE = "professors-service";
+
+    private final WebClient.Builder webClientBuilder;
+    private final DownstreamClientProperties properties;
+    private final Map<String, ConnectionProvider> connectionProviders = new ConcurrentHashMap<>();
+    private final Map<String, WebClient> webClients = new ConcurrentHashMap<>();
+
+    public WebClientRegistry(WebClient.Builder webClientBuilder, DownstreamClientProperties properties) {
+        this.webClientBuilder = webClientBuilder;
+        this.properties = properties;
+    }
+
+    /**
+     * Returns the client of the given downstream service, creating it and its pool on first use.
+     */
+    public WebClient get(String service) {
+        return webClients.computeIfAbsent(service, this::createWebClient);
+    }
+
+    private WebClient createWebClient(String service) {
+        DownstreamClientProperties.Pool pool = properties.poolFor(service);
+        ConnectionProvider connectionProvider = connectionProviders.computeIfAbsent(service, name ->
+            ConnectionProvider.builder(name)
+                .maxConnections(pool.maxConnections())
+                .maxIdleTime(pool.maxIdleTime())
+                .evictInBackground(pool.evictInBackground())
+                .pendingAcquireMaxCount(pool.pendingAcquireMaxCount())
+                .pendingAcquireTimeout(pool.pendingAcquireTimeout())
+                .metrics(true)
+                .build());
+        return webClientBuilder.clone()
+            .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+            .build();
+    }
+
+    @Override
+    public void destroy() {
+        connectionProviders.values().forEach(ConnectionProvider::dispose);
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.university.api.application;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.samples.university.api.dto.CatalogCourse;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * In-memory course catalog with prebuilt indexes by department, weekday, credits and professor,
+ * so that filtered queries are index lookups rather than scans.
+ * <p>
+ * The catalog is an immutable snapshot swapped atomically on refresh. A refresh only re-indexes
+ * the courses that were added, changed or removed since the previous snapshot.
+ */
+@Component
+public class CourseCatalog implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(CourseCatalog.class);
+
+    private final CourseSource courseSource;
+    private final Duration refreshInterval;
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private Disposable refreshTask;
+
+    public CourseCatalog(CourseSource courseSource,
+                         @Value("${gateway.course-catalog.refresh-interval:5m}") Duration refreshInterval) {
+        this.courseSource = courseSource;
+        this.refreshInterval = refreshInterval;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        refresh().block();
+        refreshTask = Flux.interval(refreshInterval, refreshInterval)
+            .concatMap(tick -> refresh())
+            .subscribe();
+    }
+
+    @Override
+    public void destroy() {
+        if (refreshTask != null) {
+            refreshTask.dispose();
+        }
+    }
+
+    /**
+     * Reloads the courses from the {@link CourseSource}; a failed load keeps the current snapshot.
+     */
+    public Mono<Void> refresh() {
+        return courseSource.loadCourses()
+            .collectList()
+            .doOnNext(this::apply)
+            .onErrorResume(e -> {
+                log.warn("Unable to refresh the course catalog, keeping the previous one", e);
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    synchronized void apply(List<CatalogCourse> courses) {
+        snapshot = snapshot.apply(courses);
+    }
+
+    public Optional<CatalogCourse> findById(int courseId) {
+        return Optional.ofNullable(snapshot.byId().get(courseId));
+    }
+
+    /**
+     * Finds the courses matching every non-null criterion, ordered by id.
+     * Department and professor names are matched case-insensitively.
+     */
+    public List<CatalogCourse> find(String department, DayOfWeek day, Integer credits, String professorName) {
+        Snapshot current = snapshot;
+        List<NavigableSet<Integer>> candidates = new ArrayList<>(4);
+        if (department != null) {
+            candidates.add(current.byDepartment().get(normalize(department)));
+        }
+        if (day != null) {
+            candidates.add(current.byDay().get(day));
+        }
+        if (credits != null) {
+            candidates.add(current.byCredits().get(credits));
+        }
+        if (professorName != null) {
+            candidates.add(current.byProfessor().get(normalize(professorName)));
+        }
+        if (candidates.isEmpty()) {
+            return List.copyOf(current.byId().values());
+        }
+        if (candidates.contains(null)) {
+            return List.of();
+        }
+
+        // Walk the most selective index and probe the others
+        candidates.sort(Comparator.comparingInt(NavigableSet::size));
+        List<NavigableSet<Integer>> others = candidates.subList(1, candidates.size());
+        List<CatalogCourse> result = new ArrayList<>();
+        for (Integer id : candidates.get(0)) {
+            if (others.stream().allMatch(ids -> ids.contains(id))) {
+                result.add(current.byId().get(id));
+            }
+        }
+        return result;
+    }
+
+    private static String normalize(String name) {
+        return name == null ? null : name.strip().toLowerCase(Locale.ROOT);
+    }
+
+    private record Snapshot(
+        TreeMap<Integer, CatalogCourse> byId,
+        Map<String, NavigableSet<Integer>> byDepartment,
+        Map<DayOfWeek, NavigableSet<Integer>> byDay,
+        Map<Integer, NavigableSet<Integer>> byCredits,
+        Map<String, NavigableSet<Integer>> byProfessor) {
+
+        static final Snapshot EMPTY = new Snapshot(new TreeMap<>(), Map.of(), Map.of(), Map.of(), Map.of());
+
+        /**
+         * @return a snapshot holding exactly {@code courses}, sharing every untouched index bucket with this one
+         */
+        Snapshot apply(Collection<CatalogCourse> courses) {
+            Map<Integer, CatalogCourse> incoming = new HashMap<>();
+            courses.forEach(course -> incoming.put(course.id(), course));
+
+            List<CatalogCourse> removed = byId.values().stream()
+                .filter(course -> !course.equals(incoming.get(course.id())))
+                .toList();
+            List<CatalogCourse> added = incoming.values().stream()
+                .filter(course -> !course.equals(byId.get(course.id())))
+                .toList();
+            if (removed.isEmpty() && added.isEmpty()) {
+                return this;
+            }
+
+            Snapshot next = new Snapshot(new TreeMap<>(byId), new HashMap<>(byDepartment), new HashMap<>(byDay),
+                new HashMap<>(byCredits), new HashMap<>(byProfessor));
+            removed.forEach(next::unindex);
+            added.forEach(next::index);
+            return next;
+        }
+
+        private void index(CatalogCourse course) {
+            byId.put(course.id(), course);
+            add(byDepartment, normalize(course.department()), course.id());
+            add(byDay, course.weekday(), course.id());
+            add(byCredits, course.credits(), course.id());
+            add(byProfessor, normalize(course.professorName()), course.id());
+        }
+
+        private void unindex(CatalogCourse course) {
+            byId.remove(course.id());
+            remove(byDepartment, normalize(course.department()), course.id());
+            remove(byDay, course.weekday(), course.id());
+            remove(byCredits, course.credits(), course.id());
+            remove(byProfessor, normalize(course.professorName()), course.id());
+        }
+
+        // Buckets may be shared with the previous snapshot, so they are copied rather than modified
+
+        private static <K> void add(Map<K, NavigableSet<Integer>> index, K key, int courseId) {
+            if (key != null) {
+                index.compute(key, (k, ids) -> {
+                    NavigableSet<Integer> copy = ids == null ? new TreeSet<>() : new TreeSet<>(ids);
+                    copy.add(courseId);
+                    return copy;
+                });
+            }
+        }
+
+        private static <K> void remove(Map<K, NavigableSet<Integer>> index, K key, int courseId) {
+            if (key != null) {
+                index.computeIfPresent(key, (k, ids) -> {
+                    NavigableSet<Integer> copy = new TreeSet<>(ids);
+                    copy.remove(courseId);
+                    return copy.isEmpty() ? null : copy;
+                });
+            }
+        }
+    }
+}
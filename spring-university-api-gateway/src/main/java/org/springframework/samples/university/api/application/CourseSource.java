@@ -0,0 +1,30 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.university.api.application;
+
+import org.springframework.samples.university.api.dto.CatalogCourse;
+import reactor.core.publisher.Flux;
+
+/**
+ * Source the {@link CourseCatalog} is (re)loaded from.
+ */
+public interface CourseSource {
+
+    /**
+     * @return every course currently offered
+     */
+    Flux<CatalogCourse> loadCourses();
+}
@@ -15,6 +15,7 @@
  */
 package org.springframework.samples.university.api.application;
 
+import org.springframework.samples.university.api.WebClientRegistry;
 import org.springframework.samples.university.api.dto.Exams;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -33,18 +34,24 @@ public class ExamsServiceClient {
     // Peut être changé pour les tests
     private String hostname = "http://exams-service/";
 
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient webClient;
+    private final InFlightCallCoalescer coalescer;
+    private final RequestHedger hedger;
 
-    public ExamsServiceClient(WebClient.Builder webClientBuilder) {
-        this.webClientBuilder = webClientBuilder;
+    public ExamsServiceClient(WebClientRegistry webClientRegistry, InFlightCallCoalescer coalescer, RequestHedger hedger) {
+        this.webClient = webClientRegistry.get(WebClientRegistry.EXAMS_SERVICE);
+        this.coalescer = coalescer;
+        this.hedger = hedger;
     }
 
     public Mono<Exams> getExamsForCourses(final List<Integer> courseIds) {
-        return webClientBuilder.build()
+        // The exams lookup does not depend on the order of the course ids
+        List<Integer> key = courseIds.stream().distinct().sorted().toList();
+        return coalescer.coalesce("getExamsForCourses", key, () -> hedger.hedge(() -> webClient
             .get()
             .uri(hostname + "courses/exams?courseId={courseId}", joinIds(courseIds))
             .retrieve()
-            .bodyToMono(Exams.class);
+            .bodyToMono(Exams.class)));
     }
 
     private String joinIds(List<Integer> courseIds) {
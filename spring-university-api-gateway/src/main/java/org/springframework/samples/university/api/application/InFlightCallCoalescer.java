@@ -0,0 +1,91 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.university.api.application;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight deduplication of upstream calls: concurrent callers asking for the same
+ * {@code (call, key)} pair share one upstream {@link Mono} instead of each issuing their own request.
+ * <p>
+ * An entry only lives while its upstream call is in flight; nothing is cached once it completes.
+ */
+@Component
+public class InFlightCallCoalescer {
+
+    static final String CALLS_METRIC = "petclinic.gateway.inflight.calls";
+
+    private final Map<CallKey, Mono<?>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> upstreamCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> coalescedCounters = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+
+    public InFlightCallCoalescer(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("petclinic.gateway.inflight.size", inFlight, Map::size)
+            .description("Number of distinct upstream calls currently in flight")
+            .register(registry);
+    }
+
+    /**
+     * Returns the in-flight call for {@code call}/{@code key} if there is one, otherwise subscribes
+     * to the {@code upstream} supplied call and shares it with every caller arriving before it completes.
+     * <p>
+     * A caller may still find an entry whose call has just completed, and gets that call's result. An entry is only
+     * ever removed by the completion of its own call, never by that of an earlier call under the same key.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Mono<T> coalesce(String call, Object key, Supplier<Mono<T>> upstream) {
+        return Mono.defer(() -> {
+            CallKey callKey = new CallKey(call, key);
+            AtomicReference<Mono<T>> self = new AtomicReference<>();
+            Mono<T> candidate = Mono.defer(() -> {
+                    counter(upstreamCounters, call, "upstream").increment();
+                    return upstream.get();
+                })
+                // Only removes this entry, never one registered by a later leader under the same key
+                .doFinally(signal -> inFlight.remove(callKey, self.get()))
+                .share();
+            self.set(candidate);
+            Mono<T> shared = (Mono<T>) inFlight.putIfAbsent(callKey, candidate);
+            if (shared == null) {
+                return candidate;
+            }
+            counter(coalescedCounters, call, "coalesced").increment();
+            return shared;
+        });
+    }
+
+    private Counter counter(Map<String, Counter> counters, String call, String outcome) {
+        return counters.computeIfAbsent(call, c -> Counter.builder(CALLS_METRIC)
+            .description("Gateway client calls, by whether they reached upstream or joined an in-flight call")
+            .tag("call", c)
+            .tag("outcome", outcome)
+            .register(registry));
+    }
+
+    private record CallKey(String call, Object key) {
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.university.api.application;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.samples.university.api.HedgingProperties;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Hedges slow calls: when a call has not answered after the configured latency percentile, a duplicate
+ * is sent and whichever answers first wins, the other one being cancelled. A failure only wins once
+ * neither call can answer any more. Duplicates go through the load-balanced client again, so they
+ * usually land on another instance.
+ * <p>
+ * Hedges are limited to {@code budgetRatio} of the calls so that a slow backend is not sent twice the load.
+ */
+public class RequestHedger {
+
+    static final String HEDGES_METRIC = "petclinic.gateway.hedged.requests";
+
+    private static final int LATENCY_WINDOW = 1024;
+    private static final int RECOMPUTE_EVERY = 64;
+    /**
+     * Hedges that may be fired in a burst once enough budget has been accumulated.
+     */
+    private static final double MAX_BUDGET = 10;
+
+    private final HedgingProperties properties;
+    private final Counter fired;
+    private final Counter won;
+    private final Counter cancelled;
+
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private int latencyCount;
+    private int nextLatency;
+    private int samplesSinceRecompute;
+    private volatile long delayNanos;
+    private double budget;
+
+    public RequestHedger(String call, HedgingProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.delayNanos = properties.initialDelay().toNanos();
+        this.fired = counter(registry, call, "fired");
+        this.won = counter(registry, call, "won");
+        this.cancelled = counter(registry, call, "cancelled");
+    }
+
+    private static Counter counter(MeterRegistry registry, String call, String outcome) {
+        return Counter.builder(HEDGES_METRIC)
+            .description("Hedged duplicate requests, by outcome")
+            .tag("call", call)
+            .tag("outcome", outcome)
+            .register(registry);
+    }
+
+    public <T> Mono<T> hedge(Supplier<Mono<T>> call) {
+        if (!properties.enabled()) {
+            return Mono.defer(call);
+        }
+        return Mono.create(sink -> new HedgedCall<>(call, sink).start());
+    }
+
+    public Duration currentDelay() {
+        return Duration.ofNanos(delayNanos);
+    }
+
+    /**
+     * Times a call until it succeeds or is cancelled: a slow call cancelled because its twin won is still a sample
+     * of how slow the backend is, leaving it out would drag the hedging delay down.
+     */
+    private <T> Mono<T> timed(Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.get()
+                .doOnSuccess(value -> recordLatency(System.nanoTime() - start))
+                .doOnCancel(() -> recordLatency(System.nanoTime() - start));
+        });
+    }
+
+    synchronized void recordLatency(long nanos) {
+        latencies[nextLatency] = nanos;
+        nextLatency = (nextLatency + 1) % LATENCY_WINDOW;
+        latencyCount = Math.min(latencyCount + 1, LATENCY_WINDOW);
+        if (++samplesSinceRecompute >= RECOMPUTE_EVERY) {
+            samplesSinceRecompute = 0;
+            long[] sorted = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sorted);
+            long percentile = sorted[(int) Math.min(sorted.length - 1, Math.ceil(properties.percentile() * sorted.length) - 1)];
+            delayNanos = Math.max(properties.minDelay().toNanos(), percentile);
+        }
+    }
+
+    private synchronized void addBudget() {
+        budget = Math.min(MAX_BUDGET, budget + properties.budgetRatio());
+    }
+
+    private synchronized boolean tryAcquireBudget() {
+        if (budget < 1) {
+            return false;
+        }
+        budget--;
+        return true;
+    }
+
+    /**
+     * One call and its possible duplicate. The first value wins. An error only wins when its twin is not in flight,
+     * so that hedging never turns a success into a failure: while both run, the failing one waits for the other.
+     */
+    private final class HedgedCall<T> {
+
+        private final Supplier<Mono<T>> call;
+        private final MonoSink<T> sink;
+        private Disposable primary;
+        private Disposable timer;
+        private Disposable duplicate;
+        private boolean primaryRunning;
+        private boolean duplicateRunning;
+        private boolean hedged;
+        private boolean done;
+        private Throwable error;
+
+        HedgedCall(Supplier<Mono<T>> call, MonoSink<T> sink) {
+            this.call = call;
+            this.sink = sink;
+        }
+
+        void start() {
+            addBudget();
+            sink.onCancel(this::cancel);
+            synchronized (this) {
+                primaryRunning = true;
+            }
+            Disposable primarySubscription = timed(call).subscribe(
+                value -> onValue(value, false), ex -> onError(ex, false), () -> onValue(null, false));
+            synchronized (this) {
+                primary = primarySubscription;
+                // Answered or cancelled while subscribing: disposing a finished call does nothing
+                if (done) {
+                    primary.dispose();
+                    return;
+                }
+            }
+            Disposable timerSubscription = Mono.delay(Duration.ofNanos(delayNanos)).subscribe(tick -> fire());
+            synchronized (this) {
+                timer = timerSubscription;
+                if (done) {
+                    timer.dispose();
+                }
+            }
+        }
+
+        private void fire() {
+            synchronized (this) {
+                if (done || !tryAcquireBudget()) {
+                    return;
+                }
+                hedged = true;
+                duplicateRunning = true;
+            }
+            fired.increment();
+            Disposable subscription = timed(call).subscribe(
+                value -> onValue(value, true), ex -> onError(ex, true), () -> onValue(null, true));
+            synchronized (this) {
+                duplicate = subscription;
+                if (done) {
+                    duplicate.dispose();
+                }
+            }
+        }
+
+        /**
+         * @param value the value of the call, or {@code null} when it completed empty
+         */
+        private void onValue(T value, boolean fromDuplicate) {
+            Disposable loser;
+            boolean loserRunning;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                loserRunning = fromDuplicate ? primaryRunning : duplicateRunning;
+                loser = fromDuplicate ? primary : duplicate;
+                primaryRunning = false;
+                duplicateRunning = false;
+            }
+            dispose(timer);
+            if (loserRunning) {
+                dispose(loser);
+                cancelled.increment();
+            }
+            if (fromDuplicate) {
+                won.increment();
+            }
+            if (value == null) {
+                sink.success();
+            } else {
+                sink.success(value);
+            }
+        }
+
+        private void onError(Throwable ex, boolean fromDuplicate) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                if (fromDuplicate) {
+                    duplicateRunning = false;
+                } else {
+                    primaryRunning = false;
+                }
+                if (error != null) {
+                    ex.addSuppressed(error);
+                }
+                error = ex;
+                if (primaryRunning || duplicateRunning) {
+                    // Its twin may still succeed
+                    return;
+                }
+                done = true;
+            }
+            dispose(timer);
+            sink.error(ex);
+        }
+
+        private void cancel() {
+            boolean wasHedged;
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                wasHedged = hedged;
+            }
+            dispose(timer);
+            dispose(primary);
+            dispose(duplicate);
+            if (wasHedged) {
+                cancelled.increment();
+            }
+        }
+
+        private void dispose(Disposable disposable) {
+            if (disposable != null) {
+                disposable.dispose();
+            }
+        }
+    }
+}
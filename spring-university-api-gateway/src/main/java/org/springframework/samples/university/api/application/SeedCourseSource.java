@@ -0,0 +1,99 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.university.api.application;
+
+import org.springframework.samples.university.api.dto.CatalogCourse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+/**
+ * Static course offering used until the catalog is served by a backend service.
+ */
+@Component
+public class SeedCourseSource implements CourseSource {
+
+    private static final List<CatalogCourse> COURSES = List.of(
+        // Computer Science Courses
+        course(1, "CS101", "Introduction to Programming", "Computer Science",
+            "Dr. Smith", "Monday 09:00-10:30", "Room A101", 3, 25, 30),
+        course(2, "CS201", "Data Structures", "Computer Science",
+            "Dr. Johnson", "Tuesday 11:00-12:30", "Room A102", 4, 20, 25),
+        course(3, "CS301", "Algorithms", "Computer Science",
+            "Dr. Williams", "Wednesday 14:00-15:30", "Room A103", 4, 18, 25),
+        course(4, "CS401", "Database Systems", "Computer Science",
+            "Dr. Brown", "Thursday 09:00-10:30", "Room A104", 3, 22, 25),
+        course(5, "CS402", "Software Engineering", "Computer Science",
+            "Dr. Davis", "Friday 11:00-12:30", "Room A105", 3, 15, 30),
+
+        // Mathematics Courses
+        course(6, "MATH101", "Calculus I", "Mathematics",
+            "Dr. Miller", "Monday 11:00-12:30", "Room B201", 4, 28, 35),
+        course(7, "MATH201", "Linear Algebra", "Mathematics",
+            "Dr. Wilson", "Tuesday 09:00-10:30", "Room B202", 3, 25, 30),
+        course(8, "MATH301", "Probability & Statistics", "Mathematics",
+            "Dr. Moore", "Wednesday 11:00-12:30", "Room B203", 3, 20, 25),
+
+        // Physics Courses
+        course(9, "PHY101", "Physics I - Mechanics", "Physics",
+            "Dr. Taylor", "Monday 14:00-15:30", "Room C101", 4, 30, 35),
+        course(10, "PHY201", "Physics II - Electromagnetism", "Physics",
+            "Dr. Anderson", "Thursday 11:00-12:30", "Room C102", 4, 22, 30),
+
+        // Chemistry Courses
+        course(11, "CHEM101", "General Chemistry", "Chemistry",
+            "Dr. Thomas", "Tuesday 14:00-15:30", "Room D101", 4, 25, 30),
+        course(12, "CHEM201", "Organic Chemistry", "Chemistry",
+            "Dr. Jackson", "Friday 09:00-10:30", "Room D102", 4, 18, 25),
+
+        // Biology Courses
+        course(13, "BIO101", "Introduction to Biology", "Biology",
+            "Dr. White", "Wednesday 09:00-10:30", "Room E101", 3, 32, 35),
+        course(14, "BIO201", "Genetics", "Biology",
+            "Dr. Harris", "Thursday 14:00-15:30", "Room E102", 4, 20, 25),
+
+        // Engineering Courses
+        course(15, "ENG101", "Engineering Fundamentals", "Engineering",
+            "Dr. Martin", "Monday 16:00-17:30", "Room F101", 3, 28, 30),
+        course(16, "ENG201", "Thermodynamics", "Engineering",
+            "Dr. Garcia", "Tuesday 16:00-17:30", "Room F102", 4, 22, 25),
+
+        // Business Courses
+        course(17, "BUS101", "Introduction to Business", "Business Administration",
+            "Dr. Martinez", "Wednesday 16:00-17:30", "Room G101", 3, 35, 40),
+        course(18, "BUS201", "Financial Accounting", "Business Administration",
+            "Dr. Robinson", "Friday 14:00-15:30", "Room G102", 3, 30, 35),
+
+        // Economics Courses
+        course(19, "ECON101", "Microeconomics", "Economics",
+            "Dr. Clark", "Thursday 16:00-17:30", "Room H101", 3, 25, 30),
+        course(20, "ECON201", "Macroeconomics", "Economics",
+            "Dr. Lewis", "Friday 16:00-17:30", "Room H102", 3, 22, 30)
+    );
+
+    @Override
+    public Flux<CatalogCourse> loadCourses() {
+        return Flux.fromIterable(COURSES);
+    }
+
+    private static CatalogCourse course(int id, String code, String title, String department,
+                                        String professorName, String timeSlot, String room,
+                                        int credits, int enrolled, int capacity) {
+        return new CatalogCourse(id, code, title, department, professorName, timeSlot, room,
+            credits, enrolled, capacity, "Course description for " + title);
+    }
+}
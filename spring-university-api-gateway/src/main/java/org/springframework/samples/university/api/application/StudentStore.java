@@ -0,0 +1,294 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.university.api.application;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.samples.university.api.dto.StudentRecord;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * In-memory student store backing the gateway's standalone student API.
+ * <p>
+ * Students are indexed by id, and secondarily by student code, email and department. Reads are lock-free.
+ * Writes touching the secondary indexes are serialized; course changes only swap the student's
+ * immutable record. The store can be snapshotted to disk between runs
+ * ({@code gateway.student-store.snapshot-file}) and filled with synthetic students for load testing
+ * ({@code gateway.student-store.synthetic-students}).
+ */
+@Component
+public class StudentStore implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentStore.class);
+
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final List<String> SYNTHETIC_DEPARTMENTS = List.of(
+        "Computer Science", "Mathematics", "Physics", "Chemistry", "Biology",
+        "Engineering", "Business Administration", "Economics", "Finance");
+
+    private final Map<Integer, StudentRecord> byId = new ConcurrentHashMap<>();
+    private final Map<String, Integer> byStudentId = new ConcurrentHashMap<>();
+    private final Map<String, Integer> byEmail = new ConcurrentHashMap<>();
+    private final Map<String, Set<Integer>> byDepartment = new ConcurrentHashMap<>();
+    private final AtomicInteger idGenerator = new AtomicInteger(1);
+    private final Object indexLock = new Object();
+
+    private final String snapshotFile;
+    private final int syntheticStudents;
+
+    public StudentStore(@Value("${gateway.student-store.snapshot-file:}") String snapshotFile,
+                        @Value("${gateway.student-store.synthetic-students:0}") int syntheticStudents) {
+        this.snapshotFile = snapshotFile;
+        this.syntheticStudents = syntheticStudents;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (StringUtils.hasText(snapshotFile) && Files.exists(Path.of(snapshotFile))) {
+            readSnapshot(Path.of(snapshotFile));
+            log.info("Loaded {} students from {}", byId.size(), snapshotFile);
+            return;
+        }
+        create("John", "Doe", "STU001", "john.doe@tbs.edu", "Computer Science");
+        create("Jane", "Smith", "STU002", "jane.smith@tbs.edu", "Business Administration");
+        create("Ahmed", "Ben Ali", "STU003", "ahmed.benali@tbs.edu", "Finance");
+        for (int i = 1; i <= syntheticStudents; i++) {
+            create("Student" + i, "Synthetic", String.format("SYN%06d", i), "student" + i + "@tbs.edu",
+                SYNTHETIC_DEPARTMENTS.get(i % SYNTHETIC_DEPARTMENTS.size()));
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (StringUtils.hasText(snapshotFile)) {
+            writeSnapshot(Path.of(snapshotFile));
+            log.info("Saved {} students to {}", byId.size(), snapshotFile);
+        }
+    }
+
+    public Collection<StudentRecord> findAll() {
+        return byId.values().stream()
+            .sorted(Comparator.comparingInt(StudentRecord::id))
+            .toList();
+    }
+
+    public Optional<StudentRecord> findById(int id) {
+        return Optional.ofNullable(byId.get(id));
+    }
+
+    public Optional<StudentRecord> findByStudentId(String studentId) {
+        return Optional.ofNullable(byStudentId.get(studentId.strip()))
+            .map(byId::get);
+    }
+
+    public Optional<StudentRecord> findByEmail(String email) {
+        return Optional.ofNullable(byEmail.get(normalize(email)))
+            .map(byId::get);
+    }
+
+    public List<StudentRecord> findByDepartment(String department) {
+        return byDepartment.getOrDefault(normalize(department), Set.of()).stream()
+            .sorted()
+            .map(byId::get)
+            .toList();
+    }
+
+    /**
+     * @throws DuplicateStudentException if the student code or email is already taken
+     */
+    public StudentRecord create(String firstName, String lastName, String studentId, String email, String department) {
+        synchronized (indexLock) {
+            // Only take an id once the student is accepted, so that rejected duplicates do not leave holes
+            checkUnique(null, studentId, email);
+            int id = idGenerator.getAndIncrement();
+            StudentRecord student = new StudentRecord(id, firstName, lastName, studentId, email, department, Set.of());
+            byId.put(id, student);
+            index(student);
+            return student;
+        }
+    }
+
+    /**
+     * Replaces the student's details, keeping its courses.
+     * @throws DuplicateStudentException if the student code or email is already taken by another student
+     */
+    public Optional<StudentRecord> update(int id, String firstName, String lastName, String studentId,
+                                          String email, String department) {
+        synchronized (indexLock) {
+            StudentRecord existing = byId.get(id);
+            if (existing == null) {
+                return Optional.empty();
+            }
+            checkUnique(id, studentId, email);
+            unindex(existing);
+            // compute() keeps a concurrent course change from being lost
+            StudentRecord updated = byId.compute(id, (key, current) ->
+                new StudentRecord(id, firstName, lastName, studentId, email, department, current.courses()));
+            index(updated);
+            return Optional.of(updated);
+        }
+    }
+
+    public Optional<StudentRecord> registerCourses(int id, Collection<Integer> courseIds) {
+        return Optional.ofNullable(byId.computeIfPresent(id, (key, student) -> student.withCourses(courseIds)));
+    }
+
+    public Optional<StudentRecord> dropCourse(int id, int courseId) {
+        return Optional.ofNullable(byId.computeIfPresent(id, (key, student) -> student.withoutCourse(courseId)));
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * @param id the student being updated, or {@code null} for a new student
+     */
+    private void checkUnique(Integer id, String studentId, String email) {
+        Integer owner = studentId == null ? null : byStudentId.get(studentId.strip());
+        if (owner != null && !owner.equals(id)) {
+            throw new DuplicateStudentException("Student id " + studentId + " is already used");
+        }
+        owner = email == null ? null : byEmail.get(normalize(email));
+        if (owner != null && !owner.equals(id)) {
+            throw new DuplicateStudentException("Email " + email + " is already used");
+        }
+    }
+
+    private void index(StudentRecord student) {
+        if (student.studentId() != null) {
+            byStudentId.put(student.studentId().strip(), student.id());
+        }
+        if (student.email() != null) {
+            byEmail.put(normalize(student.email()), student.id());
+        }
+        if (student.department() != null) {
+            byDepartment.computeIfAbsent(normalize(student.department()), d -> ConcurrentHashMap.newKeySet())
+                .add(student.id());
+        }
+    }
+
+    private void unindex(StudentRecord student) {
+        if (student.studentId() != null) {
+            byStudentId.remove(student.studentId().strip(), student.id());
+        }
+        if (student.email() != null) {
+            byEmail.remove(normalize(student.email()), student.id());
+        }
+        if (student.department() != null) {
+            byDepartment.computeIfPresent(normalize(student.department()), (d, ids) -> {
+                ids.remove(student.id());
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private static String normalize(String value) {
+        return value.strip().toLowerCase(Locale.ROOT);
+    }
+
+    void writeSnapshot(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        List<StudentRecord> students = new ArrayList<>(byId.values());
+        try (DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp))))) {
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(idGenerator.get());
+            out.writeInt(students.size());
+            for (StudentRecord student : students) {
+                out.writeInt(student.id());
+                writeNullable(out, student.firstName());
+                writeNullable(out, student.lastName());
+                writeNullable(out, student.studentId());
+                writeNullable(out, student.email());
+                writeNullable(out, student.department());
+                out.writeInt(student.courses().size());
+                for (int courseId : student.courses()) {
+                    out.writeInt(courseId);
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    void readSnapshot(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+            new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file))))) {
+            int version = in.readInt();
+            if (version != SNAPSHOT_VERSION) {
+                throw new IOException("Unsupported student snapshot version " + version);
+            }
+            int nextId = in.readInt();
+            int count = in.readInt();
+            synchronized (indexLock) {
+                for (int i = 0; i < count; i++) {
+                    int id = in.readInt();
+                    String firstName = readNullable(in);
+                    String lastName = readNullable(in);
+                    String studentId = readNullable(in);
+                    String email = readNullable(in);
+                    String department = readNullable(in);
+                    int courseCount = in.readInt();
+                    Set<Integer> courses = new LinkedHashSet<>(courseCount);
+                    for (int c = 0; c < courseCount; c++) {
+                        courses.add(in.readInt());
+                    }
+                    StudentRecord student = new StudentRecord(id, firstName, lastName, studentId, email, department, courses);
+                    byId.put(id, student);
+                    index(student);
+                }
+                idGenerator.set(nextId);
+            }
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
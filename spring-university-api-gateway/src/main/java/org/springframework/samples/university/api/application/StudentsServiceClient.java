@@ -15,6 +15,7 @@
  */
 package org.springframework.samples.university.api.application;
 
+import org.springframework.samples.university.api.WebClientRegistry;
 import org.springframework.samples.university.api.dto.StudentDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -26,16 +27,18 @@ import reactor.core.publisher.Mono;
 @Component
 public class StudentsServiceClient {
 
-    private final WebClient.Builder webClientBuilder;
+    private final WebClient webClient;
+    private final InFlightCallCoalescer coalescer;
 
-    public StudentsServiceClient(WebClient.Builder webClientBuilder) {
-        this.webClientBuilder = webClientBuilder;
+    public StudentsServiceClient(WebClientRegistry webClientRegistry, InFlightCallCoalescer coalescer) {
+        this.webClient = webClientRegistry.get(WebClientRegistry.STUDENTS_SERVICE);
+        this.coalescer = coalescer;
     }
 
     public Mono<StudentDetails> getStudent(final int studentId) {
-        return webClientBuilder.build().get()
+        return coalescer.coalesce("getStudent", studentId, () -> webClient.get()
             .uri("http://students-service/students/{studentId}", studentId)
             .retrieve()
-            .bodyToMono(StudentDetails.class);
+            .bodyToMono(StudentDetails.class));
     }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.university.api.boundary.web;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.support.HasRouteId;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.samples.university.api.application.AdaptiveConcurrencyLimiter;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Route filter bounding the number of in-flight requests to a backend with an adaptive (AIMD) limit,
+ * so that a slow backend cannot pile up unbounded work in the gateway. Requests over the limit are
+ * rejected immediately with 503.
+ * <p>
+ * Each route gets its own limit, published with the route id as {@code route} tag under
+ * {@code petclinic.gateway.route.concurrency.*}. Since nothing is queued, the in-flight gauge is the
+ * route's queue depth.
+ */
+@Component
+public class AdaptiveConcurrencyLimitGatewayFilterFactory
+    extends AbstractGatewayFilterFactory<AdaptiveConcurrencyLimitGatewayFilterFactory.Config> {
+
+    private final MeterRegistry registry;
+    private final Map<String, RouteLimiter> limiters = new ConcurrentHashMap<>();
+
+    public AdaptiveConcurrencyLimitGatewayFilterFactory(MeterRegistry registry) {
+        super(Config.class);
+        this.registry = registry;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        String routeId = config.getRouteId() != null ? config.getRouteId() : "unknown";
+        // Routes are re-applied on refresh: keep the learned limit and the meters bound to it
+        RouteLimiter routeLimiter = limiters.computeIfAbsent(routeId, id -> createLimiter(id, config));
+        AdaptiveConcurrencyLimiter limiter = routeLimiter.limiter();
+        Counter rejected = routeLimiter.rejected();
+
+        return (exchange, chain) -> {
+            if (!limiter.tryAcquire()) {
+                rejected.increment();
+                exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                return exchange.getResponse().setComplete();
+            }
+            long start = System.nanoTime();
+            return chain.filter(exchange)
+                .doFinally(signal -> {
+                    if (signal == SignalType.CANCEL) {
+                        limiter.ignore();
+                        return;
+                    }
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    boolean dropped = signal == SignalType.ON_ERROR || (status != null && status.is5xxServerError());
+                    limiter.release(System.nanoTime() - start, dropped);
+                });
+        };
+    }
+
+    private RouteLimiter createLimiter(String routeId, Config config) {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(config.getInitialLimit(),
+            config.getMinLimit(), config.getMaxLimit(), config.getLatencyThreshold(), config.getBackoffRatio());
+        Tags tags = Tags.of("route", routeId);
+        Gauge.builder("petclinic.gateway.route.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+            .tags(tags)
+            .register(registry);
+        Gauge.builder("petclinic.gateway.route.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+            .tags(tags)
+            .register(registry);
+        Counter rejected = Counter.builder("petclinic.gateway.route.concurrency.rejected")
+            .tags(tags)
+            .register(registry);
+        return new RouteLimiter(limiter, rejected);
+    }
+
+    private record RouteLimiter(AdaptiveConcurrencyLimiter limiter, Counter rejected) {
+    }
+
+    public static class Config implements HasRouteId {
+
+        private String routeId;
+        private int initialLimit = 20;
+        private int minLimit = 1;
+        private int maxLimit = 200;
+        private Duration latencyThreshold = Duration.ofSeconds(1);
+        private double backoffRatio = 0.9;
+
+        @Override
+        public void setRouteId(String routeId) {
+            this.routeId = routeId;
+        }
+
+        @Override
+        public String getRouteId() {
+            return routeId;
+        }
+
+        public int getInitialLimit() { return initialLimit; }
+        public void setInitialLimit(int initialLimit) { this.initialLimit = initialLimit; }
+
+        public int getMinLimit() { return minLimit; }
+        public void setMinLimit(int minLimit) { this.minLimit = minLimit; }
+
+        public int getMaxLimit() { return maxLimit; }
+        public void setMaxLimit(int maxLimit) { this.maxLimit = maxLimit; }
+
+        public Duration getLatencyThreshold() { return latencyThreshold; }
+        public void setLatencyThreshold(Duration latencyThreshold) { this.latencyThreshold = latencyThreshold; }
+
+        public double getBackoffRatio() { return backoffRatio; }
+        public void setBackoffRatio(double backoffRatio) { this.backoffRatio = backoffRatio; }
+    }
+}
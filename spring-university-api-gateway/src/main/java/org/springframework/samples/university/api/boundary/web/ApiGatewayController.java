@@ -17,18 +17,29 @@ package org.springframework.samples.university.api.boundary.web;
 
 import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreaker;
 import org.springframework.cloud.client.circuitbreaker.ReactiveCircuitBreakerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.samples.university.api.application.StudentsServiceClient;
 import org.springframework.samples.university.api.application.ExamsServiceClient;
+import org.springframework.samples.university.api.dto.CourseDetails;
+import org.springframework.samples.university.api.dto.ExamDetails;
 import org.springframework.samples.university.api.dto.StudentDetails;
+import org.springframework.samples.university.api.dto.StudentDetailsChunk;
 import org.springframework.samples.university.api.dto.Exams;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.function.Function;
+import java.util.Map;
+
+import static java.util.stream.Collectors.groupingBy;
 
 /**
  * @author Maciej Szarlinski
@@ -37,6 +48,11 @@ import java.util.function.Function;
 @RequestMapping("/api/gateway")
 public class ApiGatewayController {
 
+    /**
+     * Maximum number of student lookups in flight for a single batched request.
+     */
+    private static final int MAX_CONCURRENT_STUDENT_LOOKUPS = 16;
+
     private final StudentsServiceClient studentsServiceClient;
     private final ExamsServiceClient examsServiceClient;
     private final ReactiveCircuitBreakerFactory cbFactory;
@@ -52,26 +68,82 @@ public class ApiGatewayController {
     @GetMapping(value = "students/{studentId}")
     public Mono<StudentDetails> getStudentDetails(final @PathVariable int studentId) {
         return studentsServiceClient.getStudent(studentId)
-            .flatMap(student ->
-                examsServiceClient.getExamsForCourses(student.getCourseIds())
-                    .transform(it -> {
-                        ReactiveCircuitBreaker cb = cbFactory.create("getStudentDetails");
-                        return cb.run(it, throwable -> emptyExamsForCourses());
-                    })
-                    .map(addExamsToStudent(student))
-            );
+            .flatMap(student -> examsByCourse(student.getCourseIds(), "getStudentDetails")
+                .map(examsByCourse -> withExams(student, examsByCourse)));
     }
 
-    private Function<Exams, StudentDetails> addExamsToStudent(StudentDetails student) {
-        return exams -> {
-            student.courses()
-                .forEach(course -> course.exams()
-                    .addAll(exams.items().stream()
-                        .filter(e -> e.courseId() == course.id())
+    /**
+     * Streaming variant of {@link #getStudentDetails}: the student header is sent as soon as the student
+     * is known, then one line per course once the exams have been joined.
+     */
+    @GetMapping(value = "students/{studentId}", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<StudentDetailsChunk> streamStudentDetails(final @PathVariable int studentId) {
+        return studentsServiceClient.getStudent(studentId)
+            .flatMapMany(student -> Flux.concat(
+                Mono.just(StudentDetailsChunk.header(student)),
+                examsByCourse(student.getCourseIds(), "getStudentDetails")
+                    .flatMapIterable(examsByCourse -> student.courses().stream()
+                        .map(course -> StudentDetailsChunk.course(withExams(course, examsByCourse)))
                         .toList())
-                );
-            return student;
-        };
+            ));
+    }
+
+    /**
+     * Batched variant used by advisor dashboards: students are fetched in parallel with bounded
+     * concurrency and all their courses are resolved with a single exams lookup.
+     * Unknown students are skipped, the order of the requested ids is preserved.
+     */
+    @GetMapping(value = "students", params = "ids")
+    public Mono<List<StudentDetails>> getStudentsDetails(final @RequestParam("ids") List<Integer> studentIds) {
+        return Flux.fromIterable(new LinkedHashSet<>(studentIds))
+            .flatMapSequential(studentId -> studentsServiceClient.getStudent(studentId)
+                    .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty()),
+                MAX_CONCURRENT_STUDENT_LOOKUPS)
+            .collectList()
+            .flatMap(students -> {
+                List<Integer> courseIds = students.stream()
+                    .flatMap(student -> student.getCourseIds().stream())
+                    .distinct()
+                    .toList();
+                return examsByCourse(courseIds, "getStudentsDetails")
+                    .map(examsByCourse -> students.stream()
+                        .map(student -> withExams(student, examsByCourse))
+                        .toList());
+            });
+    }
+
+    /**
+     * Looks up the exams of the given courses, grouped by course in a single pass so that joining them
+     * is linear. Falls back to no exams when the exams service is unavailable.
+     */
+    private Mono<Map<Integer, List<ExamDetails>>> examsByCourse(List<Integer> courseIds, String circuitBreakerName) {
+        if (courseIds.isEmpty()) {
+            return Mono.just(Map.of());
+        }
+        return examsServiceClient.getExamsForCourses(courseIds)
+            .transform(it -> {
+                ReactiveCircuitBreaker cb = cbFactory.create(circuitBreakerName);
+                return cb.run(it, throwable -> emptyExamsForCourses());
+            })
+            .map(exams -> exams.items().stream()
+                .collect(groupingBy(ExamDetails::courseId)));
+    }
+
+    /**
+     * Copies the student rather than mutating it: the same instance may be shared by coalesced callers.
+     */
+    private static StudentDetails withExams(StudentDetails student, Map<Integer, List<ExamDetails>> examsByCourse) {
+        List<CourseDetails> courses = student.courses().stream()
+            .map(course -> withExams(course, examsByCourse))
+            .toList();
+        return new StudentDetails(student.id(), student.firstName(), student.lastName(),
+            student.address(), student.city(), student.telephone(), courses);
+    }
+
+    private static CourseDetails withExams(CourseDetails course, Map<Integer, List<ExamDetails>> examsByCourse) {
+        List<ExamDetails> exams = new ArrayList<>(course.exams());
+        exams.addAll(examsByCourse.getOrDefault(course.id(), List.of()));
+        return new CourseDetails(course.id(), course.title(), course.startDate(), course.type(), exams);
     }
 
     private Mono<Exams> emptyExamsForCourses() {
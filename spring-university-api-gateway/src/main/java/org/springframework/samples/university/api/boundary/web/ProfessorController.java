@@ -15,42 +15,63 @@
  */
 package org.springframework.samples.university.api.boundary.web;
 
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.samples.university.api.WebClientRegistry;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.Map;
+import java.util.Set;
 
 /**
  * REST Controller for Professor operations
+ * <p>
+ * The gateway adds nothing to the professors data, so upstream responses are relayed as raw
+ * {@link DataBuffer}s instead of being decoded and re-encoded as JSON.
  */
 @RestController
 @RequestMapping("/api/professors")
 public class ProfessorController {
 
-    private final WebClient.Builder webClientBuilder;
+    /**
+     * Connection-level headers that only apply to the upstream hop and must not be relayed.
+     */
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of(
+        HttpHeaders.CONNECTION, "Keep-Alive", HttpHeaders.PROXY_AUTHENTICATE, HttpHeaders.PROXY_AUTHORIZATION,
+        HttpHeaders.TE, HttpHeaders.TRAILER, HttpHeaders.TRANSFER_ENCODING, HttpHeaders.UPGRADE);
 
-    public ProfessorController(WebClient.Builder webClientBuilder) {
-        this.webClientBuilder = webClientBuilder;
+    private final WebClient webClient;
+
+    public ProfessorController(WebClientRegistry webClientRegistry) {
+        this.webClient = webClientRegistry.get(WebClientRegistry.PROFESSORS_SERVICE);
     }
 
     @GetMapping
-    public Flux<Map> getAllProfessors() {
-        return webClientBuilder.build()
+    public Mono<Void> getAllProfessors(ServerHttpResponse response) {
+        return webClient
             .get()
             .uri("http://professors-service/professors")
-            .retrieve()
-            .bodyToFlux(Map.class);
+            .exchangeToMono(upstream -> passThrough(upstream, response));
     }
 
     @GetMapping("/{professorId}")
-    public Mono<Map> getProfessor(@PathVariable int professorId) {
-        return webClientBuilder.build()
+    public Mono<Void> getProfessor(@PathVariable int professorId, ServerHttpResponse response) {
+        return webClient
             .get()
             .uri("http://professors-service/professors/{id}", professorId)
-            .retrieve()
-            .bodyToMono(Map.class);
+            .exchangeToMono(upstream -> passThrough(upstream, response));
     }
-}
 
+    private static Mono<Void> passThrough(ClientResponse upstream, ServerHttpResponse response) {
+        response.setStatusCode(upstream.statusCode());
+        upstream.headers().asHttpHeaders().forEach((name, values) -> {
+            if (HOP_BY_HOP_HEADERS.stream().noneMatch(name::equalsIgnoreCase)) {
+                response.getHeaders().put(name, values);
+            }
+        });
+        return response.writeWith(upstream.bodyToFlux(DataBuffer.class));
+    }
+}
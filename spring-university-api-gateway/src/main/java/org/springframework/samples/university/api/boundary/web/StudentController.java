@@ -16,14 +16,13 @@
 package org.springframework.samples.university.api.boundary.web;
 
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
+import org.springframework.samples.university.api.application.StudentStore;
+import org.springframework.samples.university.api.dto.StudentRecord;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.List;
 
 /**
  * REST Controller for Student operations - works in standalone mode
@@ -32,87 +31,71 @@ import java.util.concurrent.atomic.AtomicInteger;
 @RequestMapping("/api/students")
 public class StudentController {
 
-    // In-memory storage for local development
-    private final Map<Integer, Map<String, Object>> students = new ConcurrentHashMap<>();
-    private final AtomicInteger idGenerator = new AtomicInteger(1);
+    private final StudentStore studentStore;
 
-    public StudentController() {
-        // Add some sample data
-        addSampleStudent("John", "Doe", "STU001", "john.doe@tbs.edu", "Computer Science");
-        addSampleStudent("Jane", "Smith", "STU002", "jane.smith@tbs.edu", "Business Administration");
-        addSampleStudent("Ahmed", "Ben Ali", "STU003", "ahmed.benali@tbs.edu", "Finance");
-    }
-
-    private void addSampleStudent(String firstName, String lastName, String studentId, String email, String department) {
-        int id = idGenerator.getAndIncrement();
-        Map<String, Object> student = new HashMap<>();
-        student.put("id", id);
-        student.put("firstName", firstName);
-        student.put("lastName", lastName);
-        student.put("studentId", studentId);
-        student.put("email", email);
-        student.put("department", department);
-        student.put("courses", new ArrayList<>());
-        students.put(id, student);
+    public StudentController(StudentStore studentStore) {
+        this.studentStore = studentStore;
     }
 
+    /**
+     * Lists every student, or looks them up by one of the secondary keys when given.
+     */
     @GetMapping
-    public Flux<Map<String, Object>> getAllStudents() {
-        return Flux.fromIterable(students.values());
+    public Flux<StudentRecord> getAllStudents(
+            @RequestParam(required = false) String studentId,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) String department) {
+        if (studentId != null && !studentId.isEmpty()) {
+            return Mono.justOrEmpty(studentStore.findByStudentId(studentId)).flux();
+        }
+        if (email != null && !email.isEmpty()) {
+            return Mono.justOrEmpty(studentStore.findByEmail(email)).flux();
+        }
+        if (department != null && !department.isEmpty()) {
+            return Flux.fromIterable(studentStore.findByDepartment(department));
+        }
+        return Flux.fromIterable(studentStore.findAll());
     }
 
     @GetMapping("/{studentId}")
-    public Mono<Map<String, Object>> getStudent(@PathVariable int studentId) {
-        Map<String, Object> student = students.get(studentId);
-        if (student != null) {
-            return Mono.just(student);
-        }
-        return Mono.empty();
+    public Mono<StudentRecord> getStudent(@PathVariable int studentId) {
+        return Mono.justOrEmpty(studentStore.findById(studentId));
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public Mono<Map<String, Object>> createStudent(@RequestBody Map<String, Object> studentData) {
-        int id = idGenerator.getAndIncrement();
-        studentData.put("id", id);
-        studentData.put("courses", new ArrayList<>());
-        students.put(id, studentData);
-        return Mono.just(studentData);
+    public Mono<StudentRecord> createStudent(@RequestBody StudentRequest studentRequest) {
+        return Mono.fromCallable(() -> studentStore.create(studentRequest.firstName(), studentRequest.lastName(),
+            studentRequest.studentId(), studentRequest.email(), studentRequest.department()));
     }
 
     @PutMapping("/{studentId}")
-    public Mono<Void> updateStudent(@PathVariable int studentId, @RequestBody Map<String, Object> studentData) {
-        if (students.containsKey(studentId)) {
-            studentData.put("id", studentId);
-            Map<String, Object> existing = students.get(studentId);
-            studentData.put("courses", existing.get("courses"));
-            students.put(studentId, studentData);
-        }
-        return Mono.empty();
+    public Mono<Void> updateStudent(@PathVariable int studentId, @RequestBody StudentRequest studentRequest) {
+        return Mono.fromRunnable(() -> studentStore.update(studentId, studentRequest.firstName(),
+            studentRequest.lastName(), studentRequest.studentId(), studentRequest.email(), studentRequest.department()));
     }
 
     @PostMapping("/{studentId}/courses")
-    public Mono<Map<String, Object>> registerCourses(@PathVariable int studentId, @RequestBody Map<String, Object> courseRegistration) {
-        Map<String, Object> student = students.get(studentId);
-        if (student != null) {
-            @SuppressWarnings("unchecked")
-            List<Integer> courseIds = (List<Integer>) courseRegistration.get("courseIds");
-            student.put("courses", courseIds != null ? courseIds : new ArrayList<>());
-            return Mono.just(student);
-        }
-        return Mono.empty();
+    public Mono<StudentRecord> registerCourses(@PathVariable int studentId, @RequestBody CourseRegistration courseRegistration) {
+        List<Integer> courseIds = courseRegistration.courseIds() != null ? courseRegistration.courseIds() : List.of();
+        return Mono.justOrEmpty(studentStore.registerCourses(studentId, courseIds));
     }
 
     @DeleteMapping("/{studentId}/courses/{courseId}")
     public Mono<Void> dropCourse(@PathVariable int studentId, @PathVariable int courseId) {
-        Map<String, Object> student = students.get(studentId);
-        if (student != null) {
-            @SuppressWarnings("unchecked")
-            List<Integer> courses = (List<Integer>) student.get("courses");
-            if (courses != null) {
-                courses.remove(Integer.valueOf(courseId));
-            }
-        }
+        studentStore.dropCourse(studentId, courseId);
         return Mono.empty();
     }
+
+    record StudentRequest(
+        String firstName,
+        String lastName,
+        String studentId,
+        String email,
+        String department) {
+    }
+
+    record CourseRegistration(
+        List<Integer> courseIds) {
+    }
 }
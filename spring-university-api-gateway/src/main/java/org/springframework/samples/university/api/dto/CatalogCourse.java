@@ -0,0 +1,54 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.university.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.DayOfWeek;
+import java.util.Locale;
+
+/**
+ * Course offered in the catalog, {@code timeSlot} reads like {@code "Monday 09:00-10:30"}.
+ */
+public record CatalogCourse(
+    int id,
+    String code,
+    String title,
+    String department,
+    String professorName,
+    String timeSlot,
+    String room,
+    int credits,
+    int enrolled,
+    int capacity,
+    String description) {
+
+    /**
+     * @return the day the course takes place on, or {@code null} when the time slot does not start with one
+     */
+    @JsonIgnore
+    public DayOfWeek weekday() {
+        if (timeSlot == null || timeSlot.isBlank()) {
+            return null;
+        }
+        String day = timeSlot.strip().split("\\s+", 2)[0];
+        try {
+            return DayOfWeek.valueOf(day.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
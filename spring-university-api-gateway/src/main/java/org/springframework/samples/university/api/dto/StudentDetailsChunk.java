@@ -0,0 +1,39 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.university.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * One line of the streamed (NDJSON) student details: the student header comes first,
+ * followed by one line per course with its exams.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record StudentDetailsChunk(
+    StudentDetails student,
+    CourseDetails course) {
+
+    public static StudentDetailsChunk header(StudentDetails student) {
+        return new StudentDetailsChunk(new StudentDetails(student.id(), student.firstName(), student.lastName(),
+            student.address(), student.city(), student.telephone(), List.of()), null);
+    }
+
+    public static StudentDetailsChunk course(CourseDetails course) {
+        return new StudentDetailsChunk(null, course);
+    }
+}
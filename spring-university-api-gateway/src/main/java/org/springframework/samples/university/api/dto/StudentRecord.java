@@ -0,0 +1,53 @@
+/*
+ * Copyright 2002-2021 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.samples.university.api.dto;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Student held by the gateway's standalone student store.
+ * <p>
+ * Instances are immutable: the course set is never modified in place, every change produces a new record.
+ */
+public record StudentRecord(
+    int id,
+    String firstName,
+    String lastName,
+    String studentId,
+    String email,
+    String department,
+    Set<Integer> courses) {
+
+    public StudentRecord {
+        courses = courses == null ? Set.of() : Collections.unmodifiableSet(new LinkedHashSet<>(courses));
+    }
+
+    public StudentRecord withCourses(Collection<Integer> courseIds) {
+        return new StudentRecord(id, firstName, lastName, studentId, email, department, new LinkedHashSet<>(courseIds));
+    }
+
+    public StudentRecord withoutCourse(int courseId) {
+        if (!courses.contains(courseId)) {
+            return this;
+        }
+        Set<Integer> remaining = new LinkedHashSet<>(courses);
+        remaining.remove(courseId);
+        return new StudentRecord(id, firstName, lastName, studentId, email, department, remaining);
+    }
+}
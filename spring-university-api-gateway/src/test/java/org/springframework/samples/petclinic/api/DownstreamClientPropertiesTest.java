@@ -0,0 +1,38 @@
+package org.springframework.samples.university.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DownstreamClientPropertiesTest {
+
+    @Test
+    void serviceSettingsOverrideDefaultsOneByOne() {
+        DownstreamClientProperties properties = new DownstreamClientProperties(
+            new DownstreamClientProperties.Pool(100, null, null, null, Duration.ofSeconds(2)),
+            Map.of("exams-service", new DownstreamClientProperties.Pool(null, null, null, 500, null)));
+
+        DownstreamClientProperties.Pool exams = properties.poolFor("exams-service");
+        assertEquals(100, exams.maxConnections());
+        assertEquals(500, exams.pendingAcquireMaxCount());
+        assertEquals(Duration.ofSeconds(2), exams.pendingAcquireTimeout());
+        assertEquals(Duration.ofSeconds(30), exams.maxIdleTime());
+
+        DownstreamClientProperties.Pool students = properties.poolFor("students-service");
+        assertEquals(100, students.maxConnections());
+        assertEquals(400, students.pendingAcquireMaxCount());
+    }
+
+    @Test
+    void builtInSettingsApplyWhenNothingIsConfigured() {
+        DownstreamClientProperties.Pool pool = new DownstreamClientProperties(null, null).poolFor("exams-service");
+
+        assertEquals(50, pool.maxConnections());
+        assertEquals(200, pool.pendingAcquireMaxCount());
+        assertEquals(Duration.ofSeconds(60), pool.evictInBackground());
+        assertEquals(Duration.ofSeconds(5), pool.pendingAcquireTimeout());
+    }
+}
@@ -0,0 +1,65 @@
+package org.springframework.samples.university.api.application;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long FAST = Duration.ofMillis(10).toNanos();
+    private static final long SLOW = Duration.ofSeconds(2).toNanos();
+
+    @Test
+    void rejectsRequestsOverTheLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, Duration.ofSeconds(1), 0.5);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    void limitGrowsAdditivelyWhenSaturatedAndFast() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, Duration.ofSeconds(1), 0.5);
+
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+        limiter.release(FAST, false);
+
+        assertEquals(3, limiter.getLimit());
+    }
+
+    @Test
+    void limitDoesNotGrowWhenUnderused() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 20, Duration.ofSeconds(1), 0.5);
+
+        limiter.tryAcquire();
+        limiter.release(FAST, false);
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void limitBacksOffMultiplicativelyOnSlowOrDroppedRequests() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 10, Duration.ofSeconds(1), 0.5);
+
+        limiter.tryAcquire();
+        limiter.release(SLOW, false);
+        assertEquals(4, limiter.getLimit());
+
+        limiter.tryAcquire();
+        limiter.release(FAST, true);
+        assertEquals(2, limiter.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire();
+            limiter.release(FAST, true);
+        }
+        assertEquals(1, limiter.getLimit());
+    }
+}
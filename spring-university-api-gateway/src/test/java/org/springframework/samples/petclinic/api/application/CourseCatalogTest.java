@@ -0,0 +1,60 @@
+package org.springframework.samples.university.api.application;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.university.api.dto.CatalogCourse;
+import reactor.core.publisher.Flux;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CourseCatalogTest {
+
+    private final List<CatalogCourse> courses = new ArrayList<>();
+
+    private CourseCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        courses.add(course(1, "Computer Science", "Dr. Smith", "Monday 09:00-10:30", 3));
+        courses.add(course(2, "Computer Science", "Dr. Johnson", "Tuesday 11:00-12:30", 4));
+        courses.add(course(3, "Mathematics", "Dr. Smith", "Monday 11:00-12:30", 4));
+        catalog = new CourseCatalog(() -> Flux.fromIterable(List.copyOf(courses)), Duration.ofHours(1));
+        catalog.refresh().block();
+    }
+
+    @Test
+    void find_intersectsIndexes() {
+        assertEquals(List.of(1, 2), ids(catalog.find("computer science", null, null, null)));
+        assertEquals(List.of(1, 3), ids(catalog.find(null, DayOfWeek.MONDAY, null, null)));
+        assertEquals(List.of(3), ids(catalog.find(null, DayOfWeek.MONDAY, 4, "Dr. Smith")));
+        assertTrue(catalog.find("Physics", null, null, null).isEmpty());
+        assertEquals(3, catalog.find(null, null, null, null).size());
+    }
+
+    @Test
+    void refresh_reindexesChangedAndRemovedCourses() {
+        courses.set(0, course(1, "Physics", "Dr. Smith", "Friday 09:00-10:30", 3));
+        courses.remove(2);
+        catalog.refresh().block();
+
+        assertEquals(List.of(2), ids(catalog.find("Computer Science", null, null, null)));
+        assertEquals(List.of(1), ids(catalog.find("Physics", DayOfWeek.FRIDAY, null, null)));
+        assertTrue(catalog.find(null, DayOfWeek.MONDAY, null, null).isEmpty());
+        assertTrue(catalog.findById(3).isEmpty());
+    }
+
+    private static List<Integer> ids(List<CatalogCourse> courses) {
+        return courses.stream().map(CatalogCourse::id).toList();
+    }
+
+    private static CatalogCourse course(int id, String department, String professor, String timeSlot, int credits) {
+        return new CatalogCourse(id, "C" + id, "Course " + id, department, professor, timeSlot, "Room " + id,
+            credits, 0, 30, "Course description");
+    }
+}
@@ -0,0 +1,104 @@
+package org.springframework.samples.university.api.application;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InFlightCallCoalescerTest {
+
+    private SimpleMeterRegistry registry;
+
+    private InFlightCallCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        coalescer = new InFlightCallCoalescer(registry);
+    }
+
+    @Test
+    void concurrentIdenticalCalls_shareOneUpstreamCall() {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        Sinks.One<String> response = Sinks.one();
+
+        Mono<String> first = coalescer.coalesce("getStudent", 1, () -> {
+            upstreamCalls.incrementAndGet();
+            return response.asMono();
+        });
+        Mono<String> second = coalescer.coalesce("getStudent", 1, () -> {
+            upstreamCalls.incrementAndGet();
+            return response.asMono();
+        });
+
+        AtomicInteger received = new AtomicInteger();
+        first.subscribe(it -> received.incrementAndGet());
+        second.subscribe(it -> received.incrementAndGet());
+        response.tryEmitValue("John");
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(2, received.get());
+        assertEquals(1.0, registry.get(InFlightCallCoalescer.CALLS_METRIC).tag("outcome", "coalesced").counter().count());
+    }
+
+    @Test
+    void completedCall_isNotReused() {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+
+        coalescer.coalesce("getStudent", 1, () -> Mono.fromCallable(upstreamCalls::incrementAndGet)).block();
+        coalescer.coalesce("getStudent", 1, () -> Mono.fromCallable(upstreamCalls::incrementAndGet)).block();
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void differentKeys_areNotCoalesced() {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        Sinks.One<String> response = Sinks.one();
+
+        coalescer.coalesce("getStudent", 1, () -> Mono.defer(() -> {
+            upstreamCalls.incrementAndGet();
+            return response.asMono();
+        })).subscribe();
+        coalescer.coalesce("getStudent", 2, () -> Mono.defer(() -> {
+            upstreamCalls.incrementAndGet();
+            return response.asMono();
+        })).subscribe();
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    @Test
+    void callerFindingACompletedCall_getsItsResultAndLeavesTheNextLeaderInPlace() {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        Sinks.One<String> nextResponse = Sinks.one();
+        Supplier<Mono<String>> upstream = () -> upstreamCalls.incrementAndGet() == 1 ? Mono.just("first") : nextResponse.asMono();
+        List<String> received = new ArrayList<>();
+
+        // The late caller looks the call up once it has completed, but before its entry is removed
+        coalescer.coalesce("getStudent", 1, upstream).subscribe(received::add, null,
+            () -> coalescer.coalesce("getStudent", 1, upstream).subscribe(received::add));
+        assertEquals(List.of("first", "first"), received);
+        assertEquals(1, upstreamCalls.get());
+
+        // Once it is gone, the next caller leads a new call which later callers join
+        coalescer.coalesce("getStudent", 1, upstream).subscribe(received::add);
+        coalescer.coalesce("getStudent", 1, upstream).subscribe(received::add);
+        assertEquals(1.0, registry.get("petclinic.gateway.inflight.size").gauge().value());
+        nextResponse.tryEmitValue("next");
+
+        assertEquals(2, upstreamCalls.get());
+        assertEquals(List.of("first", "first", "next", "next"), received);
+        assertEquals(2.0, registry.get(InFlightCallCoalescer.CALLS_METRIC).tag("outcome", "upstream").counter().count());
+        assertEquals(2.0, registry.get(InFlightCallCoalescer.CALLS_METRIC).tag("outcome", "coalesced").counter().count());
+        assertEquals(0.0, registry.get("petclinic.gateway.inflight.size").gauge().value());
+    }
+}
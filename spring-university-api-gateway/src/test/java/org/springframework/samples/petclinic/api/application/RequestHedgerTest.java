@@ -0,0 +1,170 @@
+package org.springframework.samples.university.api.application;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.university.api.HedgingProperties;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestHedgerTest {
+
+    private SimpleMeterRegistry registry;
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void slowCall_isHedgedAndDuplicateWins() {
+        RequestHedger hedger = hedger(1.0);
+
+        StepVerifier.withVirtualTime(() -> hedger.hedge(this::slowThenFast))
+            .thenAwait(Duration.ofMillis(200))
+            .expectNext("hedge")
+            .verifyComplete();
+
+        assertEquals(2, calls.get());
+        assertEquals(1.0, count("fired"));
+        assertEquals(1.0, count("won"));
+        assertEquals(1.0, count("cancelled"));
+    }
+
+    @Test
+    void fastCall_isNotHedged() {
+        RequestHedger hedger = hedger(1.0);
+
+        StepVerifier.withVirtualTime(() -> hedger.hedge(() -> Mono.delay(Duration.ofMillis(50)).thenReturn("primary")))
+            .thenAwait(Duration.ofMillis(50))
+            .expectNext("primary")
+            .verifyComplete();
+
+        assertEquals(0.0, count("fired"));
+    }
+
+    @Test
+    void hedgesAreCappedByBudget() {
+        RequestHedger hedger = hedger(0.1);
+
+        StepVerifier.withVirtualTime(() -> hedger.hedge(this::slowThenFast))
+            .thenAwait(Duration.ofSeconds(1))
+            .expectNext("primary")
+            .verifyComplete();
+
+        assertEquals(1, calls.get());
+        assertEquals(0.0, count("fired"));
+    }
+
+    @Test
+    void failingDuplicate_doesNotCancelHealthyPrimary() {
+        RequestHedger hedger = hedger(1.0);
+        Mono<String> primary = Mono.delay(Duration.ofSeconds(1)).thenReturn("primary");
+
+        StepVerifier.withVirtualTime(() -> hedger.hedge(() -> calls.incrementAndGet() == 1
+                ? primary
+                : Mono.error(new IllegalStateException("duplicate failed"))))
+            .thenAwait(Duration.ofSeconds(1))
+            .expectNext("primary")
+            .verifyComplete();
+
+        assertEquals(1.0, count("fired"));
+        assertEquals(0.0, count("won"));
+        assertEquals(0.0, count("cancelled"));
+    }
+
+    @Test
+    void failingPrimary_waitsForDuplicateInFlight() {
+        RequestHedger hedger = hedger(1.0);
+
+        StepVerifier.withVirtualTime(() -> hedger.hedge(() -> calls.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofMillis(300)).then(Mono.error(new IllegalStateException("primary failed")))
+                : Mono.delay(Duration.ofMillis(500)).thenReturn("hedge")))
+            .thenAwait(Duration.ofSeconds(1))
+            .expectNext("hedge")
+            .verifyComplete();
+
+        assertEquals(1.0, count("won"));
+    }
+
+    @Test
+    void failingPrimary_beforeHedgeFires_fails() {
+        RequestHedger hedger = hedger(1.0);
+
+        StepVerifier.withVirtualTime(() -> hedger.hedge(() -> {
+                calls.incrementAndGet();
+                return Mono.delay(Duration.ofMillis(50)).then(Mono.<String>error(new IllegalStateException("primary failed")));
+            }))
+            .thenAwait(Duration.ofSeconds(1))
+            .verifyErrorMessage("primary failed");
+
+        assertEquals(1, calls.get());
+        assertEquals(0.0, count("fired"));
+    }
+
+    @Test
+    void bothCallsFailing_fails() {
+        RequestHedger hedger = hedger(1.0);
+
+        StepVerifier.withVirtualTime(() -> hedger.hedge(() -> calls.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofMillis(300)).then(Mono.<String>error(new IllegalStateException("primary failed")))
+                : Mono.<String>error(new IllegalStateException("duplicate failed"))))
+            .thenAwait(Duration.ofSeconds(1))
+            .verifyErrorMessage("primary failed");
+    }
+
+    @Test
+    void callerCancellingHedgedCall_isCountedOnce() {
+        RequestHedger hedger = hedger(1.0);
+
+        StepVerifier.withVirtualTime(() -> hedger.hedge(() -> {
+                calls.incrementAndGet();
+                return Mono.delay(Duration.ofSeconds(1)).thenReturn("slow");
+            }))
+            .thenAwait(Duration.ofMillis(300))
+            .thenCancel()
+            .verify();
+
+        assertEquals(2, calls.get());
+        assertEquals(1.0, count("cancelled"));
+    }
+
+    @Test
+    void cancelledSlowCalls_areStillLatencySamples() {
+        HedgingProperties properties = new HedgingProperties(true, 0.95, Duration.ofMillis(20), Duration.ofMillis(1), 1.0);
+        RequestHedger hedger = new RequestHedger("getExamsForCourses", properties, registry);
+
+        for (int i = 0; i < 64; i++) {
+            calls.set(0);
+            // The slow primary is cancelled once the immediate duplicate wins, after the 20ms delay
+            assertEquals("hedge", hedger.hedge(this::slowThenFast).block(Duration.ofSeconds(5)));
+        }
+
+        // Only the duplicates would give samples of about 0ms, bringing the delay down to the 1ms minimum
+        assertTrue(hedger.currentDelay().compareTo(Duration.ofMillis(10)) > 0, hedger.currentDelay().toString());
+    }
+
+    private Mono<String> slowThenFast() {
+        if (calls.incrementAndGet() == 1) {
+            return Mono.delay(Duration.ofSeconds(1)).thenReturn("primary");
+        }
+        return Mono.just("hedge");
+    }
+
+    private RequestHedger hedger(double budgetRatio) {
+        HedgingProperties properties = new HedgingProperties(true, 0.95, Duration.ofMillis(200), Duration.ofMillis(10), budgetRatio);
+        return new RequestHedger("getExamsForCourses", properties, registry);
+    }
+
+    private double count(String outcome) {
+        return registry.get(RequestHedger.HEDGES_METRIC).tag("outcome", outcome).counter().count();
+    }
+}
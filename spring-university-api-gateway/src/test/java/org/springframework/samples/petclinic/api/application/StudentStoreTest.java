@@ -0,0 +1,82 @@
+package org.springframework.samples.university.api.application;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.samples.university.api.dto.StudentRecord;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StudentStoreTest {
+
+    private StudentStore store;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        store = new StudentStore("", 20);
+        store.afterPropertiesSet();
+    }
+
+    @Test
+    void findBySecondaryKeys() {
+        assertEquals("Jane", store.findByStudentId("STU002").orElseThrow().firstName());
+        assertEquals("Ahmed", store.findByEmail("Ahmed.BenAli@tbs.edu").orElseThrow().firstName());
+        assertEquals(List.of(1, 12, 21), store.findByDepartment("computer science").stream().map(StudentRecord::id).toList());
+    }
+
+    @Test
+    void update_reindexesSecondaryKeys() {
+        store.update(1, "John", "Doe", "STU100", "jdoe@tbs.edu", "Physics");
+
+        assertTrue(store.findByStudentId("STU001").isEmpty());
+        assertTrue(store.findByEmail("john.doe@tbs.edu").isEmpty());
+        assertEquals(1, store.findByStudentId("STU100").orElseThrow().id());
+        assertTrue(store.findByDepartment("Physics").stream().anyMatch(s -> s.id() == 1));
+        assertTrue(store.findByDepartment("Computer Science").stream().noneMatch(s -> s.id() == 1));
+    }
+
+    @Test
+    void create_rejectsDuplicateStudentId() {
+        assertThrows(DuplicateStudentException.class,
+            () -> store.create("Other", "John", "STU001", "other@tbs.edu", "Physics"));
+    }
+
+    @Test
+    void create_doesNotTakeAnIdForRejectedDuplicates() {
+        int first = store.create("New", "Student", "STU900", "new.student@tbs.edu", "Physics").id();
+        assertThrows(DuplicateStudentException.class,
+            () -> store.create("Other", "John", "STU001", "other@tbs.edu", "Physics"));
+
+        assertEquals(first + 1, store.create("Next", "Student", "STU901", "next.student@tbs.edu", "Physics").id());
+    }
+
+    @Test
+    void concurrentCourseDrops_areNotLost() {
+        store.registerCourses(1, IntStream.rangeClosed(1, 100).boxed().toList());
+
+        IntStream.rangeClosed(1, 100).parallel().forEach(courseId -> store.dropCourse(1, courseId));
+
+        assertTrue(store.findById(1).orElseThrow().courses().isEmpty());
+    }
+
+    @Test
+    void snapshot_roundTrip(@TempDir Path dir) throws Exception {
+        store.registerCourses(2, List.of(3, 4));
+        Path file = dir.resolve("students.bin");
+        store.writeSnapshot(file);
+
+        StudentStore restored = new StudentStore(file.toString(), 0);
+        restored.afterPropertiesSet();
+
+        assertEquals(store.size(), restored.size());
+        assertEquals(Set.of(3, 4), restored.findByStudentId("STU002").orElseThrow().courses());
+        assertEquals(store.size() + 1, restored.create("New", "Student", "STU999", null, null).id());
+    }
+}
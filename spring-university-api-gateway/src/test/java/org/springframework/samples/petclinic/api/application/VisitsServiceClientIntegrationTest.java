@@ -1,10 +1,14 @@
 package org.springframework.samples.university.api.application;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import mockwebserver3.MockResponse;
 import mockwebserver3.MockWebServer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.samples.university.api.DownstreamClientProperties;
+import org.springframework.samples.university.api.HedgingProperties;
+import org.springframework.samples.university.api.WebClientRegistry;
 import org.springframework.samples.university.api.dto.Exams;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
@@ -23,16 +27,23 @@ class ExamsServiceClientIntegrationTest {
 
     private MockWebServer server;
 
+    private WebClientRegistry registry;
+
     @BeforeEach
     void setUp() {
         server = new MockWebServer();
-        examsServiceClient = new ExamsServiceClient(WebClient.builder());
+        registry = new WebClientRegistry(WebClient.builder(), new DownstreamClientProperties(null, null));
+        examsServiceClient = new ExamsServiceClient(
+            registry,
+            new InFlightCallCoalescer(new SimpleMeterRegistry()),
+            new RequestHedger("getExamsForCourses", new HedgingProperties(false, 0, null, null, 0), new SimpleMeterRegistry()));
         examsServiceClient.setHostname(server.url("/").toString());
     }
 
     @AfterEach
     void shutdown() throws IOException {
         this.server.close();
+        registry.destroy();
     }
 
     @Test
@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.webflux.test.autoconfigure.WebFluxTest;
 import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JAutoConfiguration;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.samples.university.api.application.StudentsServiceClient;
 import org.springframework.samples.university.api.application.ExamsServiceClient;
 import org.springframework.samples.university.api.dto.*;
@@ -18,6 +19,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
 @WebFluxTest(controllers = ApiGatewayController.class)
 @Import({ReactiveResilience4JAutoConfiguration.class, CircuitBreakerConfiguration.class})
 class ApiGatewayControllerTest {
@@ -107,4 +111,72 @@ class ApiGatewayControllerTest {
             .jsonPath("$.courses[0].exams").isEmpty();
     }
 
+    @Test
+    void getStudentsDetails_withSingleExamsLookup() {
+        CourseDetails course1 = new CourseDetails(20, "Computer Science", "2024-01-15", new CourseType("Lecture"), new ArrayList<>());
+        CourseDetails course2 = new CourseDetails(21, "Mathematics", "2024-01-16", new CourseType("Lecture"), new ArrayList<>());
+        CourseDetails course3 = new CourseDetails(20, "Computer Science", "2024-01-15", new CourseType("Lecture"), new ArrayList<>());
+        StudentDetails john = new StudentDetails(1, "John", "Doe", "123 Main St", "New York", "555-1234", List.of(course1, course2));
+        StudentDetails jane = new StudentDetails(2, "Jane", "Smith", "456 Oak Ave", "Boston", "555-5678", List.of(course3));
+        Mockito
+            .when(studentsServiceClient.getStudent(1))
+            .thenReturn(Mono.just(john));
+        Mockito
+            .when(studentsServiceClient.getStudent(2))
+            .thenReturn(Mono.just(jane));
+
+        Exams exams = new Exams(List.of(
+            new ExamDetails(300, 20, "2024-02-15", "Midterm Exam"),
+            new ExamDetails(301, 21, "2024-02-16", "Algebra Quiz")));
+        Mockito
+            .when(examsServiceClient.getExamsForCourses(List.of(20, 21)))
+            .thenReturn(Mono.just(exams));
+
+        client.get()
+            .uri("/api/gateway/students?ids=2,1")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$[0].firstName").isEqualTo("Jane")
+            .jsonPath("$[0].courses[0].exams[0].subject").isEqualTo("Midterm Exam")
+            .jsonPath("$[1].firstName").isEqualTo("John")
+            .jsonPath("$[1].courses[1].exams[0].subject").isEqualTo("Algebra Quiz");
+
+        Mockito.verify(examsServiceClient, Mockito.times(1)).getExamsForCourses(Mockito.anyList());
+    }
+
+    @Test
+    void streamStudentDetails_sendsHeaderThenCourses() {
+        CourseDetails course1 = new CourseDetails(20, "Computer Science", "2024-01-15", new CourseType("Lecture"), new ArrayList<>());
+        CourseDetails course2 = new CourseDetails(21, "Mathematics", "2024-01-16", new CourseType("Lecture"), new ArrayList<>());
+        StudentDetails student = new StudentDetails(1, "John", "Doe", "123 Main St", "New York", "555-1234", List.of(course1, course2));
+        Mockito
+            .when(studentsServiceClient.getStudent(1))
+            .thenReturn(Mono.just(student));
+
+        Exams exams = new Exams(List.of(
+            new ExamDetails(300, 21, "2024-02-16", "Algebra Quiz"),
+            new ExamDetails(301, 20, "2024-02-15", "Midterm Exam")));
+        Mockito
+            .when(examsServiceClient.getExamsForCourses(List.of(20, 21)))
+            .thenReturn(Mono.just(exams));
+
+        List<StudentDetailsChunk> chunks = client.get()
+            .uri("/api/gateway/students/1")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .returnResult(StudentDetailsChunk.class)
+            .getResponseBody()
+            .collectList()
+            .block();
+
+        assertEquals(3, chunks.size());
+        assertEquals("John", chunks.get(0).student().firstName());
+        assertNull(chunks.get(0).course());
+        assertEquals("Midterm Exam", chunks.get(1).course().exams().get(0).subject());
+        assertEquals("Algebra Quiz", chunks.get(2).course().exams().get(0).subject());
+    }
+
 }
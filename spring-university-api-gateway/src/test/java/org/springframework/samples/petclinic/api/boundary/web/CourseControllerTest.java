@@ -0,0 +1,53 @@
+package org.springframework.samples.university.api.boundary.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.university.api.application.CourseCatalog;
+import org.springframework.samples.university.api.dto.CatalogCourse;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+
+class CourseControllerTest {
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        CourseCatalog catalog = new CourseCatalog(() -> Flux.just(
+            course(1, "Monday 09:00-10:30"),
+            course(2, "Thursday 11:00-12:30")), Duration.ofHours(1));
+        catalog.refresh().block();
+        client = WebTestClient.bindToController(new CourseController(catalog)).build();
+    }
+
+    @Test
+    void getAllCourses_acceptsDayNamesAndAbbreviationsInAnyCase() {
+        for (String day : new String[]{"Monday", "mon", "MON"}) {
+            client.get().uri("/api/courses?day={day}", day)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$[*].id").isEqualTo(1);
+        }
+        client.get().uri("/api/courses?day=thu")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody().jsonPath("$[*].id").isEqualTo(2);
+    }
+
+    @Test
+    void getAllCourses_rejectsUnknownDays() {
+        client.get().uri("/api/courses?day=Mo")
+            .exchange()
+            .expectStatus().isBadRequest();
+        client.get().uri("/api/courses?day=Someday")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
+    private static CatalogCourse course(int id, String timeSlot) {
+        return new CatalogCourse(id, "C" + id, "Course " + id, "Computer Science", "Dr. Smith", timeSlot, "Room " + id,
+            3, 0, 30, "Course description");
+    }
+}
@@ -0,0 +1,64 @@
+package org.springframework.samples.university.api.boundary.web;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.samples.university.api.DownstreamClientProperties;
+import org.springframework.samples.university.api.WebClientRegistry;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+class ProfessorControllerTest {
+
+    private static final String PROFESSORS = "[{\"id\":1,\"firstName\":\"James\",\"lastName\":\"Carter\",\"specialties\":[]}]";
+
+    private WebClientRegistry registry;
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        WebClient.Builder upstream = WebClient.builder().exchangeFunction(request -> {
+            if (request.url().getPath().equals("/professors")) {
+                return Mono.just(ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .header(HttpHeaders.CACHE_CONTROL, "max-age=60")
+                    .header(HttpHeaders.CONNECTION, "keep-alive")
+                    .body(PROFESSORS)
+                    .build());
+            }
+            return Mono.just(ClientResponse.create(HttpStatus.NOT_FOUND).build());
+        });
+        registry = new WebClientRegistry(upstream, new DownstreamClientProperties(null, null));
+        client = WebTestClient.bindToController(new ProfessorController(registry)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.destroy();
+    }
+
+    @Test
+    void getAllProfessors_relaysUpstreamBodyAndHeaders() {
+        client.get()
+            .uri("/api/professors")
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentType(MediaType.APPLICATION_JSON)
+            .expectHeader().valueEquals(HttpHeaders.CACHE_CONTROL, "max-age=60")
+            .expectHeader().doesNotExist(HttpHeaders.CONNECTION)
+            .expectBody().json(PROFESSORS);
+    }
+
+    @Test
+    void getProfessor_relaysUpstreamStatus() {
+        client.get()
+            .uri("/api/professors/42")
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+}
@@ -17,9 +17,13 @@ package org.springframework.samples.petclinic.visits.model;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 /**
@@ -31,7 +35,7 @@ import org.springframework.data.repository.query.Param;
  * @author Michael Isvy
  * @author Maciej Szarlinski
  */
-public interface EnrollmentRepository extends JpaRepository<Enrollment, Integer> {
+public interface EnrollmentRepository extends JpaRepository<Enrollment, Integer>, EnrollmentRepositoryCustom {
 
     List<Enrollment> findByStudentId(int studentId);
 
@@ -49,4 +53,14 @@ public interface EnrollmentRepository extends JpaRepository<Enrollment, Integer>
      * Check if student is already enrolled in a course (prevent duplicates)
      */
     boolean existsByStudentIdAndCourseId(int studentId, int courseId);
+
+    /**
+     * Stream the student and course of every enrollment, to be consumed within a transaction
+     */
+    @Query("SELECT new org.springframework.samples.petclinic.visits.model.StudentCourse(e.studentId, e.courseId) FROM Enrollment e")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<StudentCourse> streamAllStudentCourses();
 }
@@ -0,0 +1,34 @@
+package org.springframework.samples.petclinic.visits.model;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Enrollment writes that need more than a derived query.
+ */
+public interface EnrollmentRepositoryCustom {
+
+    /**
+     * Enrolls the student in a single statement, provided they have fewer than {@code maxCourses} enrollments.
+     *
+     * @return the new enrollment, or empty if the student already reached {@code maxCourses}
+     * @throws org.springframework.dao.DuplicateKeyException if the student is already enrolled in the course
+     */
+    Optional<Enrollment> enrollIfBelowLimit(int studentId, int courseId, LocalDate enrollmentDate, int maxCourses);
+
+    /**
+     * Inserts the given enrollments in one JDBC batch, in order, applying the same limit as
+     * {@link #enrollIfBelowLimit}. Duplicates, including of an earlier enrollment in the batch, are refused
+     * instead of failing the batch. The inserted enrollments get their id set.
+     *
+     * @return the outcome of each enrollment, in the same order
+     */
+    List<Outcome> enrollAllIfBelowLimit(List<Enrollment> enrollments, int maxCourses);
+
+    enum Outcome {
+        CREATED,
+        ALREADY_ENROLLED,
+        LIMIT_REACHED
+    }
+}
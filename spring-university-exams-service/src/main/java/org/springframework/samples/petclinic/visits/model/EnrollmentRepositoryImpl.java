@@ -0,0 +1,103 @@
+package org.springframework.samples.petclinic.visits.model;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+class EnrollmentRepositoryImpl implements EnrollmentRepositoryCustom {
+
+    // An aggregate without GROUP BY always yields one row, which HAVING drops once the student is at the limit.
+    // Duplicates are left to the (student_id, course_id) unique constraint.
+    private static final String GUARDED_INSERT =
+        "INSERT INTO enrollments (enrollment_date, student_id, course_id) "
+            + "SELECT ?, ?, ? FROM enrollments WHERE student_id = ? HAVING COUNT(*) < ?";
+
+    // Same as above, but also drops the row on a duplicate, so that one duplicate does not abort the whole batch
+    private static final String GUARDED_BATCH_INSERT = GUARDED_INSERT + " AND COUNT(CASE WHEN course_id = ? THEN 1 END) = 0";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    EnrollmentRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public Optional<Enrollment> enrollIfBelowLimit(int studentId, int courseId, LocalDate enrollmentDate, int maxCourses) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        int inserted = jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(GUARDED_INSERT, Statement.RETURN_GENERATED_KEYS);
+            ps.setDate(1, Date.valueOf(enrollmentDate));
+            ps.setInt(2, studentId);
+            ps.setInt(3, courseId);
+            ps.setInt(4, studentId);
+            ps.setInt(5, maxCourses);
+            return ps;
+        }, keys);
+        if (inserted == 0) {
+            return Optional.empty();
+        }
+        Enrollment enrollment = new Enrollment();
+        enrollment.setId(keys.getKeyAs(Number.class).intValue());
+        enrollment.setStudentId(studentId);
+        enrollment.setCourseId(courseId);
+        enrollment.setEnrollmentDate(enrollmentDate);
+        return Optional.of(enrollment);
+    }
+
+    @Override
+    public List<Outcome> enrollAllIfBelowLimit(List<Enrollment> enrollments, int maxCourses) {
+        if (enrollments.isEmpty()) {
+            return List.of();
+        }
+        List<Object[]> args = new ArrayList<>(enrollments.size());
+        for (Enrollment enrollment : enrollments) {
+            args.add(new Object[]{Date.valueOf(enrollment.getEnrollmentDate()), enrollment.getStudentId(),
+                enrollment.getCourseId(), enrollment.getStudentId(), maxCourses, enrollment.getCourseId()});
+        }
+        // Some drivers cannot return generated keys from a batch where rows were skipped, so they are read back
+        int[] counts = jdbcTemplate.batchUpdate(GUARDED_BATCH_INSERT, args);
+        Map<Long, Integer> ids = findIds(enrollments);
+
+        List<Outcome> outcomes = new ArrayList<>(enrollments.size());
+        for (int i = 0; i < enrollments.size(); i++) {
+            Enrollment enrollment = enrollments.get(i);
+            Integer id = ids.get(key(enrollment.getStudentId(), enrollment.getCourseId()));
+            if (counts[i] > 0) {
+                enrollment.setId(id);
+                outcomes.add(Outcome.CREATED);
+            } else {
+                outcomes.add(id != null ? Outcome.ALREADY_ENROLLED : Outcome.LIMIT_REACHED);
+            }
+        }
+        return outcomes;
+    }
+
+    private Map<Long, Integer> findIds(List<Enrollment> enrollments) {
+        Set<Integer> studentIds = new LinkedHashSet<>();
+        enrollments.forEach(enrollment -> studentIds.add(enrollment.getStudentId()));
+        String placeholders = String.join(",", Collections.nCopies(studentIds.size(), "?"));
+        Map<Long, Integer> ids = new HashMap<>();
+        jdbcTemplate.query("SELECT id, student_id, course_id FROM enrollments WHERE student_id IN (" + placeholders + ")",
+            rs -> {
+                ids.put(key(rs.getInt("student_id"), rs.getInt("course_id")), rs.getInt("id"));
+            }, studentIds.toArray());
+        return ids;
+    }
+
+    private static long key(int studentId, int courseId) {
+        return ((long) studentId << 32) | (courseId & 0xffffffffL);
+    }
+}
@@ -0,0 +1,10 @@
+package org.springframework.samples.petclinic.visits.model;
+
+/**
+ * The student and course of an enrollment, without the rest of its row.
+ */
+public record StudentCourse(
+    int studentId,
+    int courseId
+) {
+}
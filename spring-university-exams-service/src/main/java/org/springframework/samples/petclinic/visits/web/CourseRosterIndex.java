@@ -0,0 +1,193 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import org.springframework.samples.petclinic.visits.model.StudentCourse;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * In-memory index of the students enrolled in each course, as one bitmap per course with a bit set per student.
+ * Roster sizes and the overlap between courses are computed a word of 64 students at a time.
+ * <p>
+ * Bits stand for student ordinals, not student ids: each student is numbered densely the first time it is indexed,
+ * so that the size of a bitmap follows the number of students rather than the largest student id.
+ * {@link #studentId(int)} maps an ordinal back. Ordinals are never reused, even once a student has no enrollment left.
+ * <p>
+ * Published bitmaps are never modified: a write replaces the bitmap of its course with an updated copy, so that
+ * writes are serialized and reads never block or see a half-applied change.
+ * <p>
+ * A load reads the database without holding the lock. An enrollment deleted after its query ran, but before
+ * {@link #addAll} took the lock, would come back with the load, so removals made from {@link #beginLoad} on are
+ * applied again once the load is added.
+ */
+@Component
+class CourseRosterIndex {
+
+    private static final BitSet EMPTY = new BitSet();
+
+    private final Map<Integer, BitSet> rosters = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> ordinals = new ConcurrentHashMap<>();
+    // Filled before any bitmap referring to the new ordinals is published, and only grown under the lock
+    private volatile int[] studentIds = new int[1024];
+    private int nextOrdinal;
+    // Removals made since the load began, or null outside of a load
+    private Set<StudentCourse> removedDuringLoad;
+
+    public synchronized void add(int studentId, int courseId) {
+        if (removedDuringLoad != null) {
+            // Enrolled again since its removal: the load may or may not have it, and it must stay
+            removedDuringLoad.remove(new StudentCourse(studentId, courseId));
+        }
+        BitSet roster = roster(courseId);
+        int ordinal = ordinal(studentId);
+        if (!roster.get(ordinal)) {
+            BitSet updated = (BitSet) roster.clone();
+            updated.set(ordinal);
+            rosters.put(courseId, updated);
+        }
+    }
+
+    public synchronized void remove(int studentId, int courseId) {
+        if (removedDuringLoad != null) {
+            removedDuringLoad.add(new StudentCourse(studentId, courseId));
+        }
+        BitSet roster = roster(courseId);
+        Integer ordinal = ordinals.get(studentId);
+        if (ordinal != null && roster.get(ordinal)) {
+            BitSet updated = (BitSet) roster.clone();
+            updated.clear(ordinal);
+            if (updated.isEmpty()) {
+                rosters.remove(courseId);
+            } else {
+                rosters.put(courseId, updated);
+            }
+        }
+    }
+
+    /**
+     * Starts recording removals, to be called before the enrollments of a load are queried.
+     */
+    public synchronized void beginLoad() {
+        removedDuringLoad = new HashSet<>();
+    }
+
+    /**
+     * Adds every enrollment of {@code enrollments}, copying each changed bitmap once rather than once per enrollment.
+     * Ends the load begun with {@link #beginLoad}, if any, by applying again the removals made since.
+     */
+    public synchronized void addAll(Stream<StudentCourse> enrollments) {
+        Map<Integer, BitSet> added = new HashMap<>();
+        enrollments.forEach(enrollment ->
+            added.computeIfAbsent(enrollment.courseId(), courseId -> new BitSet()).set(ordinal(enrollment.studentId())));
+        added.forEach((courseId, students) -> {
+            students.or(roster(courseId));
+            rosters.put(courseId, students);
+        });
+        if (removedDuringLoad != null) {
+            Set<StudentCourse> removed = removedDuringLoad;
+            removedDuringLoad = null;
+            removed.forEach(enrollment -> remove(enrollment.studentId(), enrollment.courseId()));
+        }
+    }
+
+    public int courseCount() {
+        return rosters.size();
+    }
+
+    /**
+     * @return the courses having at least one student, in id order
+     */
+    public int[] courseIds() {
+        return rosters.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    public int cardinality(int courseId) {
+        return roster(courseId).cardinality();
+    }
+
+    /**
+     * @return the id of the student numbered {@code ordinal}
+     */
+    public int studentId(int ordinal) {
+        return studentIds[ordinal];
+    }
+
+    /**
+     * @return the ids of the students of a bitmap of this index, in id order
+     */
+    public int[] studentIds(BitSet students) {
+        int[] ids = studentIds;
+        return students.stream().map(ordinal -> ids[ordinal]).sorted().toArray();
+    }
+
+    /**
+     * @return a copy of the students enrolled in the course
+     */
+    public BitSet students(int courseId) {
+        return (BitSet) roster(courseId).clone();
+    }
+
+    /**
+     * @return the students enrolled in all of the courses
+     */
+    public BitSet intersection(List<Integer> courseIds) {
+        return combine(courseIds, BitSet::and);
+    }
+
+    /**
+     * @return the students enrolled in any of the courses
+     */
+    public BitSet union(List<Integer> courseIds) {
+        return combine(courseIds, BitSet::or);
+    }
+
+    /**
+     * @return the students enrolled in the first course and in none of the others
+     */
+    public BitSet difference(List<Integer> courseIds) {
+        return combine(courseIds, BitSet::andNot);
+    }
+
+    private BitSet combine(List<Integer> courseIds, BiConsumer<BitSet, BitSet> operation) {
+        if (courseIds.isEmpty()) {
+            return new BitSet();
+        }
+        BitSet result = students(courseIds.get(0));
+        for (int i = 1; i < courseIds.size(); i++) {
+            operation.accept(result, roster(courseIds.get(i)));
+        }
+        return result;
+    }
+
+    private BitSet roster(int courseId) {
+        return rosters.getOrDefault(courseId, EMPTY);
+    }
+
+    /**
+     * Numbers the student if it is new, under the lock of the writers.
+     */
+    private int ordinal(int studentId) {
+        Integer ordinal = ordinals.get(studentId);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        int assigned = nextOrdinal++;
+        int[] ids = studentIds;
+        if (assigned == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+        ids[assigned] = studentId;
+        studentIds = ids;
+        ordinals.put(studentId, assigned);
+        return assigned;
+    }
+}
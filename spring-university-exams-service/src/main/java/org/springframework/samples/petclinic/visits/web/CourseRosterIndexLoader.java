@@ -0,0 +1,52 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.samples.petclinic.visits.model.EnrollmentRepository;
+import org.springframework.samples.petclinic.visits.model.StudentCourse;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.stream.Stream;
+
+/**
+ * Fills the {@link CourseRosterIndex} from the database before the web server starts, so that the roster, conflict
+ * and timetable endpoints never answer from a partial index.
+ * From then on {@link EnrollmentResource} and {@link EnrollmentIntake} keep it current.
+ */
+@Component
+class CourseRosterIndexLoader implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(CourseRosterIndexLoader.class);
+
+    private final EnrollmentRepository enrollmentRepository;
+    private final CourseRosterIndex rosterIndex;
+    private final TransactionTemplate transactionTemplate;
+
+    CourseRosterIndexLoader(EnrollmentRepository enrollmentRepository, CourseRosterIndex rosterIndex,
+                            PlatformTransactionManager transactionManager) {
+        this.enrollmentRepository = enrollmentRepository;
+        this.rosterIndex = rosterIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        load();
+    }
+
+    public void load() {
+        long start = System.nanoTime();
+        transactionTemplate.executeWithoutResult(status -> {
+            // Before the query runs, so that no enrollment deleted from then on comes back with the load
+            rosterIndex.beginLoad();
+            try (Stream<StudentCourse> enrollments = enrollmentRepository.streamAllStudentCourses()) {
+                rosterIndex.addAll(enrollments);
+            }
+        });
+        log.info("Indexed the rosters of {} courses in {} ms", rosterIndex.courseCount(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
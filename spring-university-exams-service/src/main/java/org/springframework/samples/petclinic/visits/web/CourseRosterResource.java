@@ -0,0 +1,78 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.constraints.Min;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Course roster REST controller: the number of students of a course, or of a combination of courses.
+ * With {@code students=true} the student ids are listed as well.
+ */
+@RestController
+@RequestMapping("/enrollments/rosters")
+@Timed("petclinic.enrollment.rosters")
+class CourseRosterResource {
+
+    private final CourseRosterIndex rosterIndex;
+
+    CourseRosterResource(CourseRosterIndex rosterIndex) {
+        this.rosterIndex = rosterIndex;
+    }
+
+    @GetMapping("/{courseId}")
+    public Roster getRoster(
+        @PathVariable("courseId") @Min(1) int courseId,
+        @RequestParam(name = "students", defaultValue = "false") boolean listStudents) {
+        return roster(List.of(courseId), rosterIndex.students(courseId), listStudents);
+    }
+
+    /**
+     * Students enrolled in all of the courses
+     */
+    @GetMapping("/intersection")
+    public Roster getIntersection(
+        @RequestParam("courseId") List<Integer> courseIds,
+        @RequestParam(name = "students", defaultValue = "false") boolean listStudents) {
+        return roster(courseIds, rosterIndex.intersection(courseIds), listStudents);
+    }
+
+    /**
+     * Students enrolled in any of the courses
+     */
+    @GetMapping("/union")
+    public Roster getUnion(
+        @RequestParam("courseId") List<Integer> courseIds,
+        @RequestParam(name = "students", defaultValue = "false") boolean listStudents) {
+        return roster(courseIds, rosterIndex.union(courseIds), listStudents);
+    }
+
+    /**
+     * Students enrolled in the first course and in none of the others
+     */
+    @GetMapping("/difference")
+    public Roster getDifference(
+        @RequestParam("courseId") List<Integer> courseIds,
+        @RequestParam(name = "students", defaultValue = "false") boolean listStudents) {
+        return roster(courseIds, rosterIndex.difference(courseIds), listStudents);
+    }
+
+    private Roster roster(List<Integer> courseIds, BitSet students, boolean listStudents) {
+        return new Roster(courseIds, students.cardinality(), listStudents ? rosterIndex.studentIds(students) : null);
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Roster(
+        List<Integer> courseIds,
+        int count,
+        int[] studentIds
+    ) {
+    }
+}
@@ -0,0 +1,105 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.samples.petclinic.visits.model.Enrollment;
+import org.springframework.samples.petclinic.visits.model.EnrollmentRepository;
+import org.springframework.stereotype.Component;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the enrollments of many students in chunks of ids, several chunks at a time, and writes each chunk as soon as
+ * it is read. Only a few chunks are ever held in memory, whatever the number of students.
+ * <p>
+ * Chunks are read on a pool shared by all requests, so that bulk reads never take more than its size in connections.
+ */
+@Component
+class EnrollmentBulkReader implements DisposableBean {
+
+    private final EnrollmentRepository enrollmentRepository;
+    private final JsonMapper jsonMapper;
+    private final int chunkSize;
+    private final int parallelism;
+    private final ExecutorService executor;
+
+    EnrollmentBulkReader(EnrollmentRepository enrollmentRepository, JsonMapper jsonMapper,
+                         @Value("${enrollments.bulk.chunk-size:500}") int chunkSize,
+                         @Value("${enrollments.bulk.parallelism:4}") int parallelism) {
+        this.enrollmentRepository = enrollmentRepository;
+        this.jsonMapper = jsonMapper;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "enrollment-bulk-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Writes the enrollments of the students as {@code {"items": [...]}}, grouped by chunk of student ids in the
+     * order given.
+     */
+    public void write(List<Integer> studentIds, OutputStream out) throws InterruptedIOException {
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(studentIds));
+        Deque<Future<List<Enrollment>>> reading = new ArrayDeque<>(parallelism);
+        int next = 0;
+        try (JsonGenerator generator = jsonMapper.createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeArrayPropertyStart("items");
+            while (next < distinct.size() || !reading.isEmpty()) {
+                // Keep up to parallelism chunks in flight, and write them back in order
+                while (next < distinct.size() && reading.size() < parallelism) {
+                    List<Integer> chunk = distinct.subList(next, Math.min(next + chunkSize, distinct.size()));
+                    reading.add(executor.submit(() -> enrollmentRepository.findByStudentIdIn(chunk)));
+                    next += chunk.size();
+                }
+                for (Enrollment enrollment : await(reading.poll())) {
+                    jsonMapper.writeValue(generator, enrollment);
+                }
+                generator.flush();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } finally {
+            reading.forEach(chunk -> chunk.cancel(true));
+        }
+    }
+
+    private static List<Enrollment> await(Future<List<Enrollment>> chunk) throws InterruptedIOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading enrollments");
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (CancellationException ex) {
+            throw new IllegalStateException("Enrollment read was cancelled", ex);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
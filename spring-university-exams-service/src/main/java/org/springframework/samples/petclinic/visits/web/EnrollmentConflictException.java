@@ -0,0 +1,13 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.CONFLICT)
+public class EnrollmentConflictException extends RuntimeException {
+
+    public EnrollmentConflictException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,287 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.samples.petclinic.visits.model.Enrollment;
+import org.springframework.samples.petclinic.visits.model.EnrollmentRepository;
+import org.springframework.samples.petclinic.visits.model.EnrollmentRepositoryCustom.Outcome;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accepts enrollments into a bounded queue and writes them from a single thread, as many per transaction as are
+ * queued (up to the batch size). Each accepted enrollment gets a ticket that can be polled for its outcome.
+ * <p>
+ * A batch that fails as a whole, for instance on a duplicate racing with a synchronous enrollment, is retried one
+ * enrollment at a time. Tickets are forgotten once their outcome is older than the configured time to live.
+ */
+@Component
+class EnrollmentIntake implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(EnrollmentIntake.class);
+    private static final long IDLE_POLL_MILLIS = 1000;
+    private static final long SHUTDOWN_WAIT_MILLIS = 10_000;
+
+    private final EnrollmentRepository enrollmentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CourseRosterIndex rosterIndex;
+    private final int batchSize;
+    private final Duration ticketTtl;
+    private final BlockingQueue<Ticket> queue;
+    private final Map<UUID, Ticket> tickets = new ConcurrentHashMap<>();
+    private final Map<State, Counter> outcomes = new EnumMap<>(State.class);
+    private final Thread writer;
+    private volatile boolean accepting = true;
+    private Instant nextSweep = Instant.now();
+
+    EnrollmentIntake(EnrollmentRepository enrollmentRepository,
+                     TransactionTemplate transactionTemplate,
+                     CourseRosterIndex rosterIndex,
+                     MeterRegistry registry,
+                     @Value("${enrollments.intake.capacity:10000}") int capacity,
+                     @Value("${enrollments.intake.batch-size:200}") int batchSize,
+                     @Value("${enrollments.intake.ticket-ttl:10m}") Duration ticketTtl) {
+        this.enrollmentRepository = enrollmentRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.rosterIndex = rosterIndex;
+        this.batchSize = batchSize;
+        this.ticketTtl = ticketTtl;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        Gauge.builder("petclinic.enrollment.intake.queue", queue, BlockingQueue::size)
+            .description("Number of accepted enrollments waiting to be written")
+            .register(registry);
+        for (State state : State.values()) {
+            outcomes.put(state, Counter.builder("petclinic.enrollment.intake.tickets")
+                .description("Enrollment intake tickets, by state: accepted ones are pending")
+                .tag("state", state.name().toLowerCase())
+                .register(registry));
+        }
+        this.writer = new Thread(this::writeQueued, "enrollment-intake");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    enum State {
+        PENDING,
+        CREATED,
+        REJECTED,
+        FAILED
+    }
+
+    record TicketStatus(
+        UUID ticket,
+        int studentId,
+        int courseId,
+        State state,
+        Enrollment enrollment,
+        String message
+    ) {
+    }
+
+    /**
+     * @return the status of the new ticket, or empty if the queue is full
+     */
+    Optional<TicketStatus> submit(int studentId, int courseId) {
+        Ticket ticket = new Ticket(UUID.randomUUID(), studentId, courseId, LocalDate.now());
+        tickets.put(ticket.id, ticket);
+        if (!accepting || !queue.offer(ticket)) {
+            tickets.remove(ticket.id);
+            return Optional.empty();
+        }
+        outcomes.get(State.PENDING).increment();
+        return Optional.of(ticket.status());
+    }
+
+    /**
+     * Gets the status of the ticket, waiting up to {@code wait} for its outcome if it is still pending.
+     */
+    DeferredResult<TicketStatus> poll(UUID id, Duration wait) {
+        Ticket ticket = tickets.get(id);
+        if (ticket == null) {
+            throw new ResourceNotFoundException("Enrollment ticket " + id + " not found");
+        }
+        DeferredResult<TicketStatus> result = new DeferredResult<>(wait.toMillis());
+        if (wait.isZero() || !ticket.subscribe(result)) {
+            result.setResult(ticket.status());
+            return result;
+        }
+        result.onTimeout(() -> result.setResult(ticket.status()));
+        result.onCompletion(() -> ticket.unsubscribe(result));
+        return result;
+    }
+
+    private void writeQueued() {
+        List<Ticket> batch = new ArrayList<>(batchSize);
+        while (accepting || !queue.isEmpty()) {
+            try {
+                Ticket first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                    write(batch);
+                    batch.clear();
+                }
+                forgetExpiredTickets();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Could not write {} queued enrollments", batch.size(), ex);
+                batch.forEach(ticket -> complete(ticket, State.FAILED, null, "Enrollment could not be written"));
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<Ticket> batch) {
+        List<Enrollment> enrollments = new ArrayList<>(batch.size());
+        for (Ticket ticket : batch) {
+            Enrollment enrollment = new Enrollment();
+            enrollment.setStudentId(ticket.studentId);
+            enrollment.setCourseId(ticket.courseId);
+            enrollment.setEnrollmentDate(ticket.enrollmentDate);
+            enrollments.add(enrollment);
+        }
+        List<Outcome> results;
+        try {
+            results = transactionTemplate.execute(status ->
+                enrollmentRepository.enrollAllIfBelowLimit(enrollments, EnrollmentResource.MAX_COURSES_PER_STUDENT));
+        } catch (DataAccessException | TransactionException ex) {
+            // TransactionException covers a commit that failed after every statement succeeded
+            log.warn("Batch of {} enrollments failed, writing them one at a time", batch.size(), ex);
+            batch.forEach(this::writeOne);
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            switch (results.get(i)) {
+                case CREATED -> complete(batch.get(i), State.CREATED, enrollments.get(i), null);
+                case ALREADY_ENROLLED -> complete(batch.get(i), State.REJECTED, null, EnrollmentResource.ALREADY_ENROLLED);
+                case LIMIT_REACHED -> complete(batch.get(i), State.REJECTED, null, EnrollmentResource.LIMIT_REACHED);
+            }
+        }
+    }
+
+    private void writeOne(Ticket ticket) {
+        try {
+            enrollmentRepository.enrollIfBelowLimit(ticket.studentId, ticket.courseId, ticket.enrollmentDate,
+                    EnrollmentResource.MAX_COURSES_PER_STUDENT)
+                .ifPresentOrElse(
+                    enrollment -> complete(ticket, State.CREATED, enrollment, null),
+                    () -> complete(ticket, State.REJECTED, null, EnrollmentResource.LIMIT_REACHED));
+        } catch (DuplicateKeyException ex) {
+            complete(ticket, State.REJECTED, null, EnrollmentResource.ALREADY_ENROLLED);
+        } catch (DataAccessException | TransactionException ex) {
+            log.error("Could not write enrollment of student {} in course {}", ticket.studentId, ticket.courseId, ex);
+            complete(ticket, State.FAILED, null, "Enrollment could not be written");
+        }
+    }
+
+    private void complete(Ticket ticket, State state, Enrollment enrollment, String message) {
+        if (enrollment != null) {
+            rosterIndex.add(enrollment.getStudentId(), enrollment.getCourseId());
+        }
+        outcomes.get(state).increment();
+        ticket.complete(state, enrollment, message);
+    }
+
+    private void forgetExpiredTickets() {
+        Instant now = Instant.now();
+        if (now.isBefore(nextSweep)) {
+            return;
+        }
+        nextSweep = now.plusMillis(IDLE_POLL_MILLIS);
+        Instant horizon = now.minus(ticketTtl);
+        tickets.values().removeIf(ticket -> ticket.completedBefore(horizon));
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        // Let the writer empty the queue, so that accepted enrollments are not silently dropped
+        accepting = false;
+        writer.join(SHUTDOWN_WAIT_MILLIS);
+        if (!queue.isEmpty()) {
+            log.warn("Shutting down with {} accepted enrollments not written", queue.size());
+        }
+    }
+
+    private static final class Ticket {
+
+        private final UUID id;
+        private final int studentId;
+        private final int courseId;
+        private final LocalDate enrollmentDate;
+        private final List<DeferredResult<TicketStatus>> waiters = new ArrayList<>();
+        private State state = State.PENDING;
+        private Enrollment enrollment;
+        private String message;
+        private Instant completedAt;
+
+        Ticket(UUID id, int studentId, int courseId, LocalDate enrollmentDate) {
+            this.id = id;
+            this.studentId = studentId;
+            this.courseId = courseId;
+            this.enrollmentDate = enrollmentDate;
+        }
+
+        synchronized TicketStatus status() {
+            return new TicketStatus(id, studentId, courseId, state, enrollment, message);
+        }
+
+        /**
+         * @return false if the ticket already has its outcome
+         */
+        synchronized boolean subscribe(DeferredResult<TicketStatus> waiter) {
+            if (state != State.PENDING) {
+                return false;
+            }
+            waiters.add(waiter);
+            return true;
+        }
+
+        synchronized void unsubscribe(DeferredResult<TicketStatus> waiter) {
+            waiters.remove(waiter);
+        }
+
+        void complete(State state, Enrollment enrollment, String message) {
+            List<DeferredResult<TicketStatus>> notified;
+            TicketStatus status;
+            synchronized (this) {
+                this.state = state;
+                this.enrollment = enrollment;
+                this.message = message;
+                this.completedAt = Instant.now();
+                status = status();
+                notified = new ArrayList<>(waiters);
+                waiters.clear();
+            }
+            notified.forEach(waiter -> waiter.setResult(status));
+        }
+
+        synchronized boolean completedBefore(Instant horizon) {
+            return completedAt != null && completedAt.isBefore(horizon);
+        }
+    }
+}
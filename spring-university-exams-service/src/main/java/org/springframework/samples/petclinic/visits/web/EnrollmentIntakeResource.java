@@ -0,0 +1,63 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Enrollment intake REST controller: enrollments are accepted right away and written in batches, for registration
+ * peaks. The outcome is read from the returned ticket.
+ */
+@RestController
+@RequestMapping("/enrollments/intake")
+@Timed("petclinic.enrollment.intake")
+class EnrollmentIntakeResource {
+
+    private static final int MAX_WAIT_SECONDS = 30;
+
+    private final EnrollmentIntake intake;
+
+    EnrollmentIntakeResource(EnrollmentIntake intake) {
+        this.intake = intake;
+    }
+
+    /**
+     * Queue an enrollment: answers 202 with a ticket, or 503 when the queue is full.
+     */
+    @PostMapping("/students/{studentId}/courses/{courseId}")
+    public ResponseEntity<EnrollmentIntake.TicketStatus> submit(
+        @PathVariable("studentId") @Min(1) int studentId,
+        @PathVariable("courseId") @Min(1) int courseId) {
+        return intake.submit(studentId, courseId)
+            .map(ticket -> ResponseEntity.accepted()
+                .location(URI.create("/enrollments/intake/" + ticket.ticket()))
+                .body(ticket))
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build());
+    }
+
+    /**
+     * Read the status of a ticket. With {@code wait}, a pending ticket is held until it has its outcome or the wait is over.
+     */
+    @GetMapping("/{ticket}")
+    public DeferredResult<EnrollmentIntake.TicketStatus> getTicket(
+        @PathVariable("ticket") UUID ticket,
+        @RequestParam(name = "wait", defaultValue = "0") @Min(0) @Max(MAX_WAIT_SECONDS) int waitSeconds) {
+        return intake.poll(ticket, Duration.ofSeconds(waitSeconds));
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.springframework.samples.petclinic.visits.web;
 
+import java.time.LocalDate;
 import java.util.List;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
@@ -22,10 +23,16 @@ import jakarta.validation.constraints.Min;
 import io.micrometer.core.annotation.Timed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.samples.petclinic.visits.model.Enrollment;
 import org.springframework.samples.petclinic.visits.model.EnrollmentRepository;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 /**
  * Enrollment REST controller for managing student course enrollments
@@ -43,12 +50,23 @@ import org.springframework.web.bind.annotation.*;
 class EnrollmentResource {
 
     private static final Logger log = LoggerFactory.getLogger(EnrollmentResource.class);
-    private static final int MAX_COURSES_PER_STUDENT = 7;
+    static final int MAX_BULK_STUDENT_IDS = 50_000;
+    static final int MAX_COURSES_PER_STUDENT = 7;
+    static final String ALREADY_ENROLLED = "Student is already enrolled in this course";
+    static final String LIMIT_REACHED = "Student cannot enroll in more than " + MAX_COURSES_PER_STUDENT + " courses per semester";
+    // Concurrent enrollments of one student contend for the same index range: a deadlock or lock timeout
+    // only means another enrollment went first, so the statement is simply run again
+    static final int LOCK_ATTEMPTS = 3;
 
     private final EnrollmentRepository enrollmentRepository;
+    private final EnrollmentBulkReader bulkReader;
+    private final CourseRosterIndex rosterIndex;
 
-    EnrollmentResource(EnrollmentRepository enrollmentRepository) {
+    EnrollmentResource(EnrollmentRepository enrollmentRepository, EnrollmentBulkReader bulkReader,
+                       CourseRosterIndex rosterIndex) {
         this.enrollmentRepository = enrollmentRepository;
+        this.bulkReader = bulkReader;
+        this.rosterIndex = rosterIndex;
     }
 
     @PostMapping("/students/{studentId}/courses/{courseId}")
@@ -57,23 +75,27 @@ class EnrollmentResource {
         @PathVariable("studentId") @Min(1) int studentId,
         @PathVariable("courseId") @Min(1) int courseId) {
 
-        // Check if student is already enrolled in this course (prevent duplicates)
-        if (enrollmentRepository.existsByStudentIdAndCourseId(studentId, courseId)) {
-            throw new IllegalStateException("Student is already enrolled in this course");
-        }
+        log.info("Creating enrollment for student {} in course {}", studentId, courseId);
+        Enrollment enrollment = enroll(studentId, courseId, 1);
+        rosterIndex.add(studentId, courseId);
+        return enrollment;
+    }
 
-        // Validate max 7 courses per student
-        long currentEnrollments = enrollmentRepository.countByStudentId(studentId);
-        if (currentEnrollments >= MAX_COURSES_PER_STUDENT) {
-            throw new IllegalStateException("Student cannot enroll in more than " + MAX_COURSES_PER_STUDENT + " courses per semester");
+    private Enrollment enroll(int studentId, int courseId, int attempt) {
+        try {
+            // One statement both checks the 7-course limit and inserts, the unique constraint rejects duplicates
+            return enrollmentRepository.enrollIfBelowLimit(studentId, courseId, LocalDate.now(), MAX_COURSES_PER_STUDENT)
+                .orElseThrow(() -> new EnrollmentConflictException(LIMIT_REACHED));
+        } catch (DuplicateKeyException ex) {
+            throw new EnrollmentConflictException(ALREADY_ENROLLED);
+        } catch (PessimisticLockingFailureException ex) {
+            if (attempt == LOCK_ATTEMPTS) {
+                log.warn("Could not enroll student {} in course {} after {} attempts", studentId, courseId, attempt, ex);
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many concurrent enrollments, try again", ex);
+            }
+            log.debug("Enrollment of student {} in course {} lost a lock, retrying", studentId, courseId, ex);
+            return enroll(studentId, courseId, attempt + 1);
         }
-
-        Enrollment enrollment = new Enrollment();
-        enrollment.setStudentId(studentId);
-        enrollment.setCourseId(courseId);
-
-        log.info("Creating enrollment for student {} in course {}", studentId, courseId);
-        return enrollmentRepository.save(enrollment);
     }
 
     @GetMapping("/students/{studentId}")
@@ -92,6 +114,20 @@ class EnrollmentResource {
         return new Enrollments(enrollments);
     }
 
+    /**
+     * Read the enrollments of many students at once, for id sets too large for a query string.
+     * The response has the same shape as the GET variant, but is written as the enrollments are read.
+     */
+    @PostMapping("/students/bulk")
+    public ResponseEntity<StreamingResponseBody> postEnrollmentsByStudentIds(@RequestBody List<Integer> studentIds) {
+        if (studentIds.size() > MAX_BULK_STUDENT_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_BULK_STUDENT_IDS + " student ids per request");
+        }
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(out -> bulkReader.write(studentIds, out));
+    }
+
     @DeleteMapping("/{enrollmentId}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
     public void delete(@PathVariable("enrollmentId") @Min(1) int enrollmentId) {
@@ -99,6 +135,7 @@ class EnrollmentResource {
             .orElseThrow(() -> new IllegalArgumentException("Enrollment " + enrollmentId + " not found"));
 
         enrollmentRepository.delete(enrollment);
+        rosterIndex.remove(enrollment.getStudentId(), enrollment.getCourseId());
         log.info("Deleted enrollment {}", enrollment);
     }
 
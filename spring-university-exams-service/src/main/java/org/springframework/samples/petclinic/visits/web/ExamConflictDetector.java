@@ -0,0 +1,203 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Finds the students having more than one exam in the same slot, given the exam slot of each course and the roster
+ * of each course as a bitmap of students.
+ * <p>
+ * Only courses sharing a slot can clash, so the work is split in two fork/join passes:
+ * <ul>
+ *     <li>every pair of courses in the same slot is intersected, for the number of students the pair shares,</li>
+ *     <li>every slot folds its rosters into the students seen at least twice, for the courses clashing per student.</li>
+ * </ul>
+ * Both passes run on a pool of the detector rather than the common pool, so that a large schedule never holds up
+ * the other users of the common pool.
+ */
+@Component
+class ExamConflictDetector implements DisposableBean {
+
+    private static final int PAIRS_PER_TASK = 256;
+    private static final int SLOTS_PER_TASK = 1;
+
+    private final ForkJoinPool pool;
+
+    @Autowired
+    ExamConflictDetector(@Value("${enrollments.conflicts.parallelism:0}") int parallelism) {
+        this(new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors(), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("exam-conflicts-" + thread.getPoolIndex());
+            return thread;
+        }, null, false));
+    }
+
+    ExamConflictDetector(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    record ConflictReport(
+        int conflictedStudents,
+        List<CoursePairConflict> coursePairs,
+        List<StudentConflict> students
+    ) {
+    }
+
+    record CoursePairConflict(
+        String slot,
+        int courseId,
+        int otherCourseId,
+        int students
+    ) {
+    }
+
+    record StudentConflict(
+        int studentId,
+        String slot,
+        List<Integer> courseIds
+    ) {
+    }
+
+    /**
+     * @param slots      the exam slot of each course, courses without one are left out
+     * @param rosters    the students of a course, which is not modified
+     * @param studentIds the id of the student a bit of the rosters stands for
+     */
+    ConflictReport detect(Map<Integer, String> slots, IntFunction<BitSet> rosters, IntUnaryOperator studentIds) {
+        List<Slot> bySlot = groupBySlot(slots, rosters);
+
+        List<int[]> pairs = new ArrayList<>();
+        for (int s = 0; s < bySlot.size(); s++) {
+            int courses = bySlot.get(s).courseIds().length;
+            for (int i = 0; i < courses; i++) {
+                for (int j = i + 1; j < courses; j++) {
+                    pairs.add(new int[]{s, i, j});
+                }
+            }
+        }
+        List<CoursePairConflict> pairConflicts = pool.invoke(new RangeTask<CoursePairConflict>(0, pairs.size(), PAIRS_PER_TASK,
+            (out, p) -> intersect(bySlot, pairs.get(p), out)));
+
+        List<StudentConflict> studentConflicts = new ArrayList<>(pool.invoke(new RangeTask<StudentConflict>(0, bySlot.size(), SLOTS_PER_TASK,
+            (out, s) -> findStudentConflicts(bySlot.get(s), studentIds, out))));
+        studentConflicts.sort(Comparator.comparingInt(StudentConflict::studentId).thenComparing(StudentConflict::slot));
+
+        int conflictedStudents = (int) studentConflicts.stream().mapToInt(StudentConflict::studentId).distinct().count();
+        return new ConflictReport(conflictedStudents, pairConflicts, studentConflicts);
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    private static List<Slot> groupBySlot(Map<Integer, String> slots, IntFunction<BitSet> rosters) {
+        Map<String, List<Integer>> coursesBySlot = new TreeMap<>();
+        slots.forEach((courseId, slot) -> {
+            if (slot != null) {
+                coursesBySlot.computeIfAbsent(slot, key -> new ArrayList<>()).add(courseId);
+            }
+        });
+        List<Slot> bySlot = new ArrayList<>(coursesBySlot.size());
+        coursesBySlot.forEach((slot, courses) -> {
+            int[] courseIds = courses.stream().mapToInt(Integer::intValue).sorted().toArray();
+            BitSet[] courseRosters = new BitSet[courseIds.length];
+            for (int i = 0; i < courseIds.length; i++) {
+                courseRosters[i] = rosters.apply(courseIds[i]);
+            }
+            bySlot.add(new Slot(slot, courseIds, courseRosters));
+        });
+        return bySlot;
+    }
+
+    private static void intersect(List<Slot> bySlot, int[] pair, List<CoursePairConflict> out) {
+        Slot slot = bySlot.get(pair[0]);
+        BitSet first = slot.rosters()[pair[1]];
+        BitSet second = slot.rosters()[pair[2]];
+        if (first.intersects(second)) {
+            BitSet both = (BitSet) first.clone();
+            both.and(second);
+            out.add(new CoursePairConflict(slot.slot(), slot.courseIds()[pair[1]], slot.courseIds()[pair[2]], both.cardinality()));
+        }
+    }
+
+    private static void findStudentConflicts(Slot slot, IntUnaryOperator studentIds, List<StudentConflict> out) {
+        BitSet seen = new BitSet();
+        BitSet twice = new BitSet();
+        for (BitSet roster : slot.rosters()) {
+            BitSet again = (BitSet) roster.clone();
+            again.and(seen);
+            twice.or(again);
+            seen.or(roster);
+        }
+        if (twice.isEmpty()) {
+            return;
+        }
+        Map<Integer, List<Integer>> coursesByStudent = new TreeMap<>();
+        for (int i = 0; i < slot.courseIds().length; i++) {
+            int courseId = slot.courseIds()[i];
+            BitSet clashing = (BitSet) slot.rosters()[i].clone();
+            clashing.and(twice);
+            clashing.stream().map(studentIds).forEach(studentId -> coursesByStudent.computeIfAbsent(studentId, key -> new ArrayList<>()).add(courseId));
+        }
+        coursesByStudent.forEach((studentId, courseIds) -> out.add(new StudentConflict(studentId, slot.slot(), courseIds)));
+    }
+
+    private record Slot(
+        String slot,
+        int[] courseIds,
+        BitSet[] rosters
+    ) {
+    }
+
+    /**
+     * Runs {@code work} for every index of a range, splitting the range in halves down to {@code threshold} indexes.
+     * Results are kept in index order.
+     */
+    private static final class RangeTask<T> extends RecursiveTask<List<T>> {
+
+        private final int from;
+        private final int to;
+        private final int threshold;
+        private final ObjIntConsumer<List<T>> work;
+
+        RangeTask(int from, int to, int threshold, ObjIntConsumer<List<T>> work) {
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+            this.work = work;
+        }
+
+        @Override
+        protected List<T> compute() {
+            if (to - from <= threshold) {
+                List<T> out = new ArrayList<>();
+                for (int i = from; i < to; i++) {
+                    work.accept(out, i);
+                }
+                return out;
+            }
+            int middle = (from + to) >>> 1;
+            RangeTask<T> right = new RangeTask<>(middle, to, threshold, work);
+            right.fork();
+            List<T> out = new RangeTask<>(from, middle, threshold, work).compute();
+            out.addAll(right.join());
+            return out;
+        }
+    }
+}
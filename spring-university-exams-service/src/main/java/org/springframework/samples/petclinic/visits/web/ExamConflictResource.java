@@ -0,0 +1,46 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+/**
+ * Exam conflict REST controller: the students who would sit two exams at once under a given exam schedule
+ */
+@RestController
+@RequestMapping("/enrollments/conflicts")
+@Timed("petclinic.enrollment.conflicts")
+class ExamConflictResource {
+
+    // Courses sharing a slot are compared pairwise, so the work grows with the square of the schedule size
+    static final int MAX_COURSES = 2_000;
+
+    private final ExamConflictDetector conflictDetector;
+    private final CourseRosterIndex rosterIndex;
+
+    ExamConflictResource(ExamConflictDetector conflictDetector, CourseRosterIndex rosterIndex) {
+        this.conflictDetector = conflictDetector;
+        this.rosterIndex = rosterIndex;
+    }
+
+    /**
+     * Check an exam schedule, given as the slot of each course: any label identifying when the exam takes place,
+     * such as its exam date. A schedule holds at most {@value #MAX_COURSES} courses.
+     */
+    @PostMapping
+    public ExamConflictDetector.ConflictReport detectConflicts(@Valid @RequestBody ExamSchedule schedule) {
+        return conflictDetector.detect(schedule.slots(), rosterIndex::students, rosterIndex::studentId);
+    }
+
+    record ExamSchedule(
+        @NotEmpty @Size(max = MAX_COURSES) Map<Integer, String> slots
+    ) {
+    }
+}
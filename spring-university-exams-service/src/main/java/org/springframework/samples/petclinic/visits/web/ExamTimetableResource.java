@@ -0,0 +1,74 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Exam timetable REST controller: proposes an exam slot for each course, keeping students from sitting two exams
+ * at once. The {@code slots} of the answer can be checked as is with {@link ExamConflictResource}.
+ */
+@RestController
+@RequestMapping("/enrollments/timetable")
+@Timed("petclinic.enrollment.timetable")
+class ExamTimetableResource {
+
+    static final int MAX_COURSES = 2_000;
+    private static final int MAX_SLOTS = 500;
+    private static final int MAX_TIME_BUDGET_SECONDS = 60;
+
+    private final ExamTimetableSolver timetableSolver;
+    private final CourseRosterIndex rosterIndex;
+    private final Duration defaultTimeBudget;
+
+    ExamTimetableResource(ExamTimetableSolver timetableSolver, CourseRosterIndex rosterIndex,
+                          @Value("${enrollments.timetable.time-budget:10s}") Duration defaultTimeBudget) {
+        this.timetableSolver = timetableSolver;
+        this.rosterIndex = rosterIndex;
+        this.defaultTimeBudget = defaultTimeBudget;
+    }
+
+    /**
+     * Schedule the given courses, or every course having students, into {@code slotCount} exam slots.
+     * At most {@value #MAX_COURSES} courses are scheduled at once. Answers 503 while other timetables take all the workers.
+     */
+    @PostMapping
+    public ResponseEntity<ExamTimetableSolver.Timetable> buildTimetable(@Valid @RequestBody TimetableRequest request) {
+        int[] courseIds = request.courseIds() != null
+            ? request.courseIds().stream().mapToInt(Integer::intValue).distinct().toArray()
+            : rosterIndex.courseIds();
+        if (courseIds.length > MAX_COURSES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                "Too many courses to schedule at once, list at most " + MAX_COURSES + " courseIds");
+        }
+        Duration budget = request.timeBudgetSeconds() != null
+            ? Duration.ofSeconds(request.timeBudgetSeconds())
+            : defaultTimeBudget;
+        return timetableSolver.solve(courseIds, rosterIndex::students, request.slotCount(), budget)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .build());
+    }
+
+    record TimetableRequest(
+        @Min(1) @Max(MAX_SLOTS) int slotCount,
+        @Size(max = MAX_COURSES) List<Integer> courseIds,
+        @Min(1) @Max(MAX_TIME_BUDGET_SECONDS) Integer timeBudgetSeconds
+    ) {
+    }
+}
@@ -0,0 +1,433 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+/**
+ * Assigns each course an exam slot so that as few students as possible have two exams in the same slot.
+ * <p>
+ * Courses are the nodes of a graph whose edges are weighted by the number of students two courses share, and the
+ * slots are colours: a timetable is conflict-free when no edge joins two courses of the same colour. Several workers
+ * each colour the graph greedily in a randomized order, then improve their colouring with a tabu search moving
+ * conflicting courses to their least conflicting slot, restarting from a perturbed colouring when they stall.
+ * The best colouring found by any worker is returned once one is conflict-free or the time budget is spent.
+ * <p>
+ * Every solve takes all the workers, so only a few solves run at once, on a pool shared by all of them. Any other
+ * solve is turned away rather than queued, since it could only start once the others have spent their budget.
+ */
+@Component
+class ExamTimetableSolver implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ExamTimetableSolver.class);
+
+    // Moves without improving the best colouring of a worker before it perturbs its colouring
+    private static final int STAGNATION_MOVES = 20_000;
+    private static final int CANDIDATE_NODES = 32;
+
+    private final int workers;
+    private final Semaphore solves;
+    private final ExecutorService executor;
+
+    ExamTimetableSolver(@Value("${enrollments.timetable.workers:0}") int workers,
+                        @Value("${enrollments.timetable.concurrent-solves:1}") int concurrentSolves) {
+        this.workers = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.solves = new Semaphore(concurrentSolves);
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(this.workers * concurrentSolves, r -> {
+            Thread thread = new Thread(r, "exam-timetable-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    record Timetable(
+        int slotCount,
+        boolean conflictFree,
+        long studentClashes,
+        int clashingCoursePairs,
+        long elapsedMillis,
+        Map<Integer, String> slots
+    ) {
+    }
+
+    /**
+     * @param courseIds the courses to schedule
+     * @param rosters   the students of a course, which is not modified
+     * @param slotCount the number of exam slots, numbered from 1
+     * @param budget    how long to search for a conflict-free timetable before settling for the best one found
+     * @return the timetable, or empty when as many solves as allowed are already running
+     */
+    Optional<Timetable> solve(int[] courseIds, IntFunction<BitSet> rosters, int slotCount, Duration budget) {
+        if (!solves.tryAcquire()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(solveWithPermit(courseIds, rosters, slotCount, budget));
+        } finally {
+            solves.release();
+        }
+    }
+
+    private Timetable solveWithPermit(int[] courseIds, IntFunction<BitSet> rosters, int slotCount, Duration budget) {
+        long start = System.nanoTime();
+        long deadline = start + budget.toNanos();
+        CourseGraph graph = CourseGraph.build(courseIds, rosters);
+
+        AtomicReference<Colouring> best = new AtomicReference<>();
+        List<Future<?>> searches = new ArrayList<>(workers);
+        try {
+            SplittableRandom seeds = new SplittableRandom();
+            for (int i = 0; i < workers; i++) {
+                Search search = new Search(graph, slotCount, seeds.split(), best);
+                searches.add(executor.submit(() -> search.run(deadline)));
+            }
+            for (Future<?> search : searches) {
+                search.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building the exam timetable", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Could not build the exam timetable", ex.getCause());
+        } finally {
+            // Searches stop at the deadline anyway, but a failed solve should not keep its workers busy until then
+            searches.forEach(search -> search.cancel(true));
+        }
+
+        Colouring colouring = best.get();
+        Map<Integer, String> slots = new LinkedHashMap<>();
+        for (int node = 0; node < graph.courseIds().length; node++) {
+            slots.put(graph.courseIds()[node], String.valueOf(colouring.slots()[node] + 1));
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Scheduled {} courses in {} slots with {} student clashes in {} ms",
+            courseIds.length, slotCount, colouring.weight(), elapsedMillis);
+        return new Timetable(slotCount, colouring.weight() == 0, colouring.weight(),
+            graph.clashingPairs(colouring.slots()), elapsedMillis, slots);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param neighbours for each node, its neighbours
+     * @param weights    for each node, the number of students shared with each of its neighbours
+     */
+    private record CourseGraph(
+        int[] courseIds,
+        int[][] neighbours,
+        int[][] weights
+    ) {
+
+        static CourseGraph build(int[] courseIds, IntFunction<BitSet> rosters) {
+            int nodes = courseIds.length;
+            // Invert the rosters into the courses of each student, then count the pairs of courses of every student
+            Map<Integer, List<Integer>> coursesByStudent = new HashMap<>();
+            for (int node = 0; node < nodes; node++) {
+                int current = node;
+                rosters.apply(courseIds[node]).stream()
+                    .forEach(student -> coursesByStudent.computeIfAbsent(student, key -> new ArrayList<>(8)).add(current));
+            }
+            List<Map<Integer, Integer>> edges = new ArrayList<>(nodes);
+            for (int node = 0; node < nodes; node++) {
+                edges.add(new HashMap<>());
+            }
+            for (List<Integer> courses : coursesByStudent.values()) {
+                for (int i = 0; i < courses.size(); i++) {
+                    for (int j = i + 1; j < courses.size(); j++) {
+                        edges.get(courses.get(i)).merge(courses.get(j), 1, Integer::sum);
+                        edges.get(courses.get(j)).merge(courses.get(i), 1, Integer::sum);
+                    }
+                }
+            }
+            int[][] neighbours = new int[nodes][];
+            int[][] weights = new int[nodes][];
+            for (int node = 0; node < nodes; node++) {
+                Map<Integer, Integer> edgesOfNode = edges.get(node);
+                neighbours[node] = new int[edgesOfNode.size()];
+                weights[node] = new int[edgesOfNode.size()];
+                int i = 0;
+                for (Map.Entry<Integer, Integer> edge : edgesOfNode.entrySet()) {
+                    neighbours[node][i] = edge.getKey();
+                    weights[node][i] = edge.getValue();
+                    i++;
+                }
+            }
+            return new CourseGraph(courseIds, neighbours, weights);
+        }
+
+        int clashingPairs(int[] slots) {
+            int pairs = 0;
+            for (int node = 0; node < neighbours.length; node++) {
+                for (int neighbour : neighbours[node]) {
+                    if (node < neighbour && slots[node] == slots[neighbour]) {
+                        pairs++;
+                    }
+                }
+            }
+            return pairs;
+        }
+    }
+
+    /**
+     * The slot of every node, and the number of students having two exams at once with it.
+     */
+    private record Colouring(
+        int[] slots,
+        long weight
+    ) {
+    }
+
+    /**
+     * One worker: a randomized greedy colouring improved by tabu search, on its own copy of the state.
+     */
+    private static final class Search {
+
+        private final CourseGraph graph;
+        private final int slotCount;
+        private final SplittableRandom random;
+        private final AtomicReference<Colouring> shared;
+        private final int nodes;
+        private final int[] slots;
+        // For each node and slot, the students the node shares with the nodes currently in that slot
+        private final int[] clashes;
+        private final long[] tabuUntil;
+        private final ConflictingNodes conflicting;
+        private long weight;
+        private long bestWeight = Long.MAX_VALUE;
+
+        Search(CourseGraph graph, int slotCount, SplittableRandom random, AtomicReference<Colouring> shared) {
+            this.graph = graph;
+            this.slotCount = slotCount;
+            this.random = random;
+            this.shared = shared;
+            this.nodes = graph.courseIds().length;
+            this.slots = new int[nodes];
+            this.clashes = new int[Math.multiplyExact(nodes, slotCount)];
+            this.tabuUntil = new long[clashes.length];
+            this.conflicting = new ConflictingNodes(nodes);
+        }
+
+        void run(long deadline) {
+            colourGreedily();
+            improve(deadline);
+        }
+
+        /**
+         * Colours the nodes by decreasing weighted degree, with some noise so that every worker starts elsewhere,
+         * each in the slot where it clashes least.
+         */
+        private void colourGreedily() {
+            double[] priority = new double[nodes];
+            Integer[] order = new Integer[nodes];
+            for (int node = 0; node < nodes; node++) {
+                long degree = 0;
+                for (int w : graph.weights()[node]) {
+                    degree += w;
+                }
+                priority[node] = degree * (0.75 + random.nextDouble() * 0.5);
+                order[node] = node;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(priority[b], priority[a]));
+            for (int node : order) {
+                int slot = leastClashingSlot(node, -1, Long.MIN_VALUE);
+                slots[node] = slot;
+                weight += clashes[node * slotCount + slot];
+                int[] neighbours = graph.neighbours()[node];
+                int[] weights = graph.weights()[node];
+                for (int i = 0; i < neighbours.length; i++) {
+                    clashes[neighbours[i] * slotCount + slot] += weights[i];
+                }
+            }
+            for (int node = 0; node < nodes; node++) {
+                conflicting.update(node, clashes[node * slotCount + slots[node]] > 0);
+            }
+            record();
+        }
+
+        private void improve(long deadline) {
+            if (slotCount < 2) {
+                return;
+            }
+            long move = 0;
+            long lastImprovement = 0;
+            while (weight > 0) {
+                // Checking the clock and the other workers on every move would cost more than the move
+                if ((move & 0xff) == 0 && (System.nanoTime() >= deadline || isSolvedElsewhere() || Thread.currentThread().isInterrupted())) {
+                    return;
+                }
+                move++;
+                // Take the best move of a sample of the conflicting nodes, rather than scanning all of them
+                int node = -1;
+                int to = -1;
+                int bestDelta = Integer.MAX_VALUE;
+                int ties = 0;
+                int candidates = Math.min(CANDIDATE_NODES, conflicting.size());
+                for (int c = 0; c < candidates; c++) {
+                    int candidate = candidates == conflicting.size() ? conflicting.get(c) : conflicting.pick(random);
+                    int from = clashes[candidate * slotCount + slots[candidate]];
+                    // A tabu move is still allowed when it leads to a colouring better than any found so far
+                    int slot = leastClashingSlot(candidate, move, bestWeight - weight + from);
+                    int delta = clashes[candidate * slotCount + slot] - from;
+                    if (delta < bestDelta) {
+                        node = candidate;
+                        to = slot;
+                        bestDelta = delta;
+                        ties = 1;
+                    } else if (delta == bestDelta && random.nextInt(++ties) == 0) {
+                        node = candidate;
+                        to = slot;
+                    }
+                }
+                int from = slots[node];
+                moveNode(node, to);
+                tabuUntil[node * slotCount + from] = move + random.nextInt(10) + (long) (0.6 * conflicting.size());
+                if (weight < bestWeight) {
+                    record();
+                    lastImprovement = move;
+                } else if (move - lastImprovement > STAGNATION_MOVES) {
+                    perturb();
+                    lastImprovement = move;
+                }
+            }
+        }
+
+        /**
+         * @param move       the current move, for the tabu list, or -1 to ignore it and allow staying in place
+         * @param aspiration clashes below which a tabu slot is allowed
+         */
+        private int leastClashingSlot(int node, long move, long aspiration) {
+            int current = move < 0 ? -1 : slots[node];
+            int best = -1;
+            int bestClashes = Integer.MAX_VALUE;
+            int ties = 0;
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (slot == current) {
+                    continue;
+                }
+                int slotClashes = clashes[node * slotCount + slot];
+                if (move >= 0 && tabuUntil[node * slotCount + slot] > move && slotClashes >= aspiration) {
+                    continue;
+                }
+                if (slotClashes < bestClashes) {
+                    best = slot;
+                    bestClashes = slotClashes;
+                    ties = 1;
+                } else if (slotClashes == bestClashes && random.nextInt(++ties) == 0) {
+                    best = slot;
+                }
+            }
+            if (best < 0) {
+                // Every other slot is tabu
+                best = (current + 1 + random.nextInt(slotCount - 1)) % slotCount;
+            }
+            return best;
+        }
+
+        private void moveNode(int node, int to) {
+            int from = slots[node];
+            slots[node] = to;
+            weight += clashes[node * slotCount + to] - clashes[node * slotCount + from];
+            int[] neighbours = graph.neighbours()[node];
+            int[] weights = graph.weights()[node];
+            for (int i = 0; i < neighbours.length; i++) {
+                int neighbour = neighbours[i];
+                clashes[neighbour * slotCount + from] -= weights[i];
+                clashes[neighbour * slotCount + to] += weights[i];
+                int slot = slots[neighbour];
+                if (slot == from || slot == to) {
+                    conflicting.update(neighbour, clashes[neighbour * slotCount + slot] > 0);
+                }
+            }
+            conflicting.update(node, clashes[node * slotCount + to] > 0);
+        }
+
+        /**
+         * Moves a few conflicting nodes to random slots, to leave the region the search is stuck in.
+         */
+        private void perturb() {
+            int moves = Math.max(1, conflicting.size() / 10);
+            for (int i = 0; i < moves && conflicting.size() > 0; i++) {
+                int node = conflicting.pick(random);
+                moveNode(node, (slots[node] + 1 + random.nextInt(slotCount - 1)) % slotCount);
+            }
+        }
+
+        private void record() {
+            bestWeight = weight;
+            Colouring colouring = new Colouring(slots.clone(), weight);
+            shared.accumulateAndGet(colouring, (current, candidate) ->
+                current == null || candidate.weight() < current.weight() ? candidate : current);
+        }
+
+        private boolean isSolvedElsewhere() {
+            Colouring best = shared.get();
+            return best != null && best.weight() == 0;
+        }
+    }
+
+    /**
+     * The nodes clashing with a neighbour in their slot, with constant time updates and random picks.
+     */
+    private static final class ConflictingNodes {
+
+        private final int[] nodes;
+        private final int[] positions;
+        private int size;
+
+        ConflictingNodes(int capacity) {
+            this.nodes = new int[capacity];
+            this.positions = new int[capacity];
+            Arrays.fill(positions, -1);
+        }
+
+        void update(int node, boolean conflicting) {
+            int position = positions[node];
+            if (conflicting && position < 0) {
+                nodes[size] = node;
+                positions[node] = size++;
+            } else if (!conflicting && position >= 0) {
+                int last = nodes[--size];
+                nodes[position] = last;
+                positions[last] = position;
+                positions[node] = -1;
+            }
+        }
+
+        int get(int index) {
+            return nodes[index];
+        }
+
+        int pick(SplittableRandom random) {
+            return nodes[random.nextInt(size)];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.samples.petclinic.visits.model.Enrollment;
+import org.springframework.samples.petclinic.visits.model.EnrollmentRepository;
+import org.springframework.samples.petclinic.visits.model.StudentCourse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.sql.init.mode=never"
+})
+@ActiveProfiles("test")
+class CourseRosterIndexTest {
+
+    private static final int LARGE_STUDENT_ID = 2_000_000_000;
+
+    @Autowired
+    EnrollmentResource enrollmentResource;
+
+    @Autowired
+    EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    CourseRosterIndex rosterIndex;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        enrollmentRepository.findAll().forEach(enrollment -> enrollmentResource.delete(enrollment.getId()));
+    }
+
+    @Test
+    void sizesBitmapsByTheNumberOfStudentsNotByTheirIds() {
+        CourseRosterIndex index = new CourseRosterIndex();
+        index.add(LARGE_STUDENT_ID, 1);
+        index.add(7, 1);
+
+        assertThat(index.students(1).size()).isLessThanOrEqualTo(Long.SIZE);
+        assertThat(index.studentIds(index.students(1))).containsExactly(7, LARGE_STUDENT_ID);
+        assertThat(index.cardinality(1)).isEqualTo(2);
+    }
+
+    @Test
+    void combinesRostersAndMapsThemBackToStudentIds() {
+        CourseRosterIndex index = new CourseRosterIndex();
+        index.addAll(Stream.of(new StudentCourse(30, 1), new StudentCourse(10, 1), new StudentCourse(LARGE_STUDENT_ID, 1),
+            new StudentCourse(10, 2), new StudentCourse(20, 2), new StudentCourse(LARGE_STUDENT_ID, 2)));
+        index.add(40, 2);
+        index.remove(10, 2);
+        index.remove(99, 2);
+
+        assertThat(index.studentIds(index.intersection(List.of(1, 2)))).containsExactly(LARGE_STUDENT_ID);
+        assertThat(index.studentIds(index.union(List.of(1, 2)))).containsExactly(10, 20, 30, 40, LARGE_STUDENT_ID);
+        assertThat(index.studentIds(index.difference(List.of(1, 2)))).containsExactly(10, 30);
+        assertThat(index.courseIds()).containsExactly(1, 2);
+
+        index.remove(30, 1);
+        index.remove(10, 1);
+        index.remove(LARGE_STUDENT_ID, 1);
+        assertThat(index.courseIds()).containsExactly(2);
+        assertThat(index.studentIds(index.students(1))).isEmpty();
+    }
+
+    @Test
+    void matchesAnIndexReloadedFromTheDatabaseAfterCreatesAndDeletes() {
+        enrollmentResource.create(101, 110);
+        enrollmentResource.create(101, 111);
+        enrollmentResource.create(102, 110);
+        Enrollment dropped = enrollmentResource.create(102, 111);
+        enrollmentResource.create(LARGE_STUDENT_ID, 111);
+        enrollmentResource.create(LARGE_STUDENT_ID, 112);
+        Enrollment last = enrollmentResource.create(103, 113);
+        enrollmentResource.delete(dropped.getId());
+        enrollmentResource.delete(last.getId());
+
+        // What a restart would rebuild
+        CourseRosterIndex reloaded = new CourseRosterIndex();
+        new CourseRosterIndexLoader(enrollmentRepository, reloaded, transactionManager).load();
+
+        assertThat(reloaded.courseIds()).containsExactly(110, 111, 112);
+        for (int courseId = 110; courseId <= 113; courseId++) {
+            assertThat(reloaded.studentIds(reloaded.students(courseId)))
+                .containsExactly(rosterIndex.studentIds(rosterIndex.students(courseId)));
+        }
+        assertThat(reloaded.studentIds(reloaded.students(111))).containsExactly(101, LARGE_STUDENT_ID);
+        assertThat(rosterIndex.studentIds(rosterIndex.students(113))).isEmpty();
+        assertThat(rosterIndex.studentIds(rosterIndex.intersection(List.of(110, 111)))).containsExactly(101);
+    }
+
+    @Test
+    void keepsEnrollmentsDeletedWhileTheLoadIsReadOutOfTheIndex() {
+        CourseRosterIndex index = new CourseRosterIndex();
+        EnrollmentRepository repository = mock(EnrollmentRepository.class);
+        when(repository.streamAllStudentCourses()).thenAnswer(invocation -> {
+            // The query has run: enrollments deleted or made again from now on are applied before the load is added
+            Stream<StudentCourse> read = Stream.of(new StudentCourse(1, 10), new StudentCourse(2, 10), new StudentCourse(3, 11));
+            index.remove(1, 10);
+            index.remove(3, 11);
+            index.add(3, 11);
+            index.add(4, 11);
+            return read;
+        });
+
+        new CourseRosterIndexLoader(repository, index, mock(PlatformTransactionManager.class)).load();
+
+        assertThat(index.studentIds(index.students(10))).containsExactly(2);
+        assertThat(index.studentIds(index.students(11))).containsExactly(3, 4);
+
+        // Once the load is added, removals are no longer held back
+        index.remove(2, 10);
+        index.add(2, 10);
+        index.addAll(Stream.of(new StudentCourse(5, 10)));
+        assertThat(index.studentIds(index.students(10))).containsExactly(2, 5);
+        assertThat(index.courseIds()).containsExactly(10, 11);
+    }
+}
@@ -0,0 +1,152 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.visits.model.Enrollment;
+import org.springframework.samples.petclinic.visits.model.EnrollmentRepository;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EnrollmentBulkReaderTest {
+
+    private final JsonMapper jsonMapper = JsonMapper.builder().build();
+    private final EnrollmentRepository repository = mock(EnrollmentRepository.class);
+    // Chunk sizes of each read, in the order the reads were made
+    private final List<Integer> chunkSizes = Collections.synchronizedList(new ArrayList<>());
+    private EnrollmentBulkReader reader;
+
+    @AfterEach
+    void tearDown() {
+        if (reader != null) {
+            reader.destroy();
+        }
+    }
+
+    @Test
+    void writesTheChunksInRequestOrderWhateverOrderTheyAreReadIn() throws Exception {
+        reader = new EnrollmentBulkReader(repository, jsonMapper, 2, 3);
+        when(repository.findByStudentIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Integer> chunk = invocation.getArgument(0);
+            // Earlier chunks take longer, so that later ones are read first
+            Thread.sleep(100L / chunk.iterator().next());
+            return enrollmentsOf(chunk);
+        });
+
+        assertThat(studentIds(write(List.of(1, 2, 3, 4, 5, 6, 7)))).containsExactly(1, 2, 3, 4, 5, 6, 7);
+    }
+
+    @Test
+    void readsEachStudentOnce() throws Exception {
+        reader = new EnrollmentBulkReader(repository, jsonMapper, 2, 2);
+        when(repository.findByStudentIdIn(anyCollection())).thenAnswer(invocation -> enrollmentsOf(invocation.getArgument(0)));
+
+        assertThat(studentIds(write(List.of(3, 1, 3, 2, 1)))).containsExactly(3, 1, 2);
+        verify(repository).findByStudentIdIn(List.of(3, 1));
+        verify(repository).findByStudentIdIn(List.of(2));
+    }
+
+    @Test
+    void writesAnEmptyListOfItemsForNoStudents() throws Exception {
+        reader = new EnrollmentBulkReader(repository, jsonMapper, 500, 4);
+
+        assertThat(write(List.of())).isEqualTo("{\"items\":[]}");
+        verify(repository, never()).findByStudentIdIn(any());
+    }
+
+    @Test
+    void splitsStudentsAtTheChunkSize() throws Exception {
+        reader = new EnrollmentBulkReader(repository, jsonMapper, 500, 4);
+        when(repository.findByStudentIdIn(anyCollection())).thenAnswer(invocation -> enrollmentsOf(invocation.getArgument(0)));
+
+        List<Integer> studentIds = IntStream.rangeClosed(1, 1_001).boxed().toList();
+        assertThat(studentIds(write(studentIds))).containsExactlyElementsOf(studentIds);
+        assertThat(chunkSizes).containsExactlyInAnyOrder(500, 500, 1);
+    }
+
+    @Test
+    void readsTenThousandStudents() throws Exception {
+        reader = new EnrollmentBulkReader(repository, jsonMapper, 500, 4);
+        when(repository.findByStudentIdIn(anyCollection())).thenAnswer(invocation -> enrollmentsOf(invocation.getArgument(0)));
+
+        List<Integer> studentIds = IntStream.rangeClosed(1, 10_000).boxed().toList();
+        assertThat(studentIds(write(studentIds))).containsExactlyElementsOf(studentIds);
+        assertThat(chunkSizes).hasSize(20);
+    }
+
+    @Test
+    void cancelsTheChunksInFlightWhenOneFails() throws Exception {
+        reader = new EnrollmentBulkReader(repository, jsonMapper, 1, 3);
+        CountDownLatch thirdStarted = new CountDownLatch(1);
+        CountDownLatch thirdInterrupted = new CountDownLatch(1);
+        when(repository.findByStudentIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Integer> chunk = invocation.getArgument(0);
+            int studentId = chunk.iterator().next();
+            if (studentId == 2) {
+                assertThat(thirdStarted.await(10, TimeUnit.SECONDS)).isTrue();
+                throw new IllegalStateException("connection lost");
+            }
+            if (studentId == 3) {
+                thirdStarted.countDown();
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException ex) {
+                    thirdInterrupted.countDown();
+                    throw ex;
+                }
+            }
+            return enrollmentsOf(chunk);
+        });
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertThatThrownBy(() -> reader.write(List.of(1, 2, 3, 4, 5), out))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("connection lost");
+
+        assertThat(thirdInterrupted.await(10, TimeUnit.SECONDS)).isTrue();
+        // The fourth chunk may have been read while the second was awaited, but the fifth is never started
+        verify(repository, never()).findByStudentIdIn(List.of(5));
+    }
+
+    private String write(List<Integer> studentIds) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        reader.write(studentIds, out);
+        return out.toString();
+    }
+
+    private List<Integer> studentIds(String json) {
+        List<Integer> studentIds = new ArrayList<>();
+        for (JsonNode item : jsonMapper.readTree(json).get("items")) {
+            studentIds.add(item.get("studentId").asInt());
+        }
+        return studentIds;
+    }
+
+    private List<Enrollment> enrollmentsOf(Collection<Integer> studentIds) {
+        chunkSizes.add(studentIds.size());
+        return studentIds.stream().map(studentId -> {
+            Enrollment enrollment = new Enrollment();
+            enrollment.setId(studentId);
+            enrollment.setStudentId(studentId);
+            enrollment.setCourseId(1);
+            return enrollment;
+        }).toList();
+    }
+}
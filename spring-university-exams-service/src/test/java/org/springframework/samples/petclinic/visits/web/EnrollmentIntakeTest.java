@@ -0,0 +1,289 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.samples.petclinic.visits.model.Enrollment;
+import org.springframework.samples.petclinic.visits.model.EnrollmentRepository;
+import org.springframework.samples.petclinic.visits.model.EnrollmentRepositoryCustom.Outcome;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.sql.init.mode=never"
+})
+@ActiveProfiles("test")
+class EnrollmentIntakeTest {
+
+    private static final Duration TICKET_TTL = Duration.ofMinutes(10);
+
+    @Autowired
+    EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private final List<EnrollmentIntake> intakes = new ArrayList<>();
+
+    private GatedTransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        enrollmentRepository.deleteAll();
+        transactionTemplate = new GatedTransactionTemplate(transactionManager);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        transactionTemplate.open();
+        for (EnrollmentIntake intake : intakes) {
+            intake.destroy();
+        }
+    }
+
+    @Test
+    void writesAFullBatchWithDuplicatesAndTheCourseLimit() throws Exception {
+        EnrollmentIntake intake = intake(enrollmentRepository, transactionTemplate, 100, TICKET_TTL);
+        UUID blocker = holdTheWriter(intake);
+
+        List<UUID> tickets = new ArrayList<>();
+        for (int courseId : new int[]{1, 2, 3, 1, 4, 5, 6, 7, 8}) {
+            tickets.add(intake.submit(1, courseId).orElseThrow().ticket());
+        }
+        transactionTemplate.open();
+
+        assertThat(awaitOutcome(intake, blocker).state()).isEqualTo(EnrollmentIntake.State.CREATED);
+        List<EnrollmentIntake.TicketStatus> statuses = new ArrayList<>();
+        for (UUID ticket : tickets) {
+            statuses.add(awaitOutcome(intake, ticket));
+        }
+        // The blocked batch, then every other ticket at once
+        assertThat(transactionTemplate.executions()).isEqualTo(2);
+        assertThat(statuses).extracting(EnrollmentIntake.TicketStatus::courseId, EnrollmentIntake.TicketStatus::state,
+                EnrollmentIntake.TicketStatus::message)
+            .containsExactly(
+                tuple(1, EnrollmentIntake.State.CREATED, null),
+                tuple(2, EnrollmentIntake.State.CREATED, null),
+                tuple(3, EnrollmentIntake.State.CREATED, null),
+                tuple(1, EnrollmentIntake.State.REJECTED, EnrollmentResource.ALREADY_ENROLLED),
+                tuple(4, EnrollmentIntake.State.CREATED, null),
+                tuple(5, EnrollmentIntake.State.CREATED, null),
+                tuple(6, EnrollmentIntake.State.CREATED, null),
+                tuple(7, EnrollmentIntake.State.CREATED, null),
+                tuple(8, EnrollmentIntake.State.REJECTED, EnrollmentResource.LIMIT_REACHED));
+        assertThat(statuses.get(0).enrollment().getId()).isNotNull();
+        assertThat(enrollmentRepository.countByStudentId(1)).isEqualTo(EnrollmentResource.MAX_COURSES_PER_STUDENT);
+    }
+
+    @Test
+    void writesEnrollmentsOneAtATimeWhenTheBatchFailsAsAWhole() throws Exception {
+        EnrollmentRepository repository = mock(EnrollmentRepository.class);
+        when(repository.enrollAllIfBelowLimit(anyList(), anyInt()))
+            .thenAnswer(invocation -> List.of(Outcome.CREATED, Outcome.CREATED, Outcome.CREATED));
+        when(repository.enrollIfBelowLimit(eq(1), eq(1), any(LocalDate.class), anyInt())).thenReturn(Optional.of(enrollment(1, 1)));
+        when(repository.enrollIfBelowLimit(eq(1), eq(2), any(LocalDate.class), anyInt())).thenThrow(new DuplicateKeyException("duplicate"));
+        when(repository.enrollIfBelowLimit(eq(1), eq(3), any(LocalDate.class), anyInt())).thenReturn(Optional.empty());
+        // Every statement succeeds but the commit does not
+        PlatformTransactionManager failingCommits = mock(PlatformTransactionManager.class);
+        doThrow(new TransactionSystemException("commit failed")).when(failingCommits).commit(any());
+        GatedTransactionTemplate template = new GatedTransactionTemplate(failingCommits);
+        EnrollmentIntake intake = intake(repository, template, 100, TICKET_TTL);
+
+        UUID first = intake.submit(1, 1).orElseThrow().ticket();
+        UUID second = intake.submit(1, 2).orElseThrow().ticket();
+        UUID third = intake.submit(1, 3).orElseThrow().ticket();
+        template.open();
+
+        assertThat(awaitOutcome(intake, first).state()).isEqualTo(EnrollmentIntake.State.CREATED);
+        assertThat(awaitOutcome(intake, second).message()).isEqualTo(EnrollmentResource.ALREADY_ENROLLED);
+        assertThat(awaitOutcome(intake, third).message()).isEqualTo(EnrollmentResource.LIMIT_REACHED);
+    }
+
+    @Test
+    void answersServiceUnavailableWhenTheQueueIsFull() throws Exception {
+        EnrollmentIntake intake = intake(enrollmentRepository, transactionTemplate, 1, TICKET_TTL);
+        EnrollmentIntakeResource resource = new EnrollmentIntakeResource(intake);
+        holdTheWriter(intake);
+
+        assertThat(resource.submit(2, 1).getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+        ResponseEntity<EnrollmentIntake.TicketStatus> rejected = resource.submit(2, 2);
+
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+    }
+
+    @Test
+    void holdsALongPollUntilTheTicketHasItsOutcome() throws Exception {
+        EnrollmentIntake intake = intake(enrollmentRepository, transactionTemplate, 100, TICKET_TTL);
+        UUID ticket = holdTheWriter(intake);
+
+        DeferredResult<EnrollmentIntake.TicketStatus> poll = intake.poll(ticket, Duration.ofSeconds(10));
+        assertThat(poll.hasResult()).isFalse();
+        assertThat(((EnrollmentIntake.TicketStatus) intake.poll(ticket, Duration.ZERO).getResult()).state())
+            .isEqualTo(EnrollmentIntake.State.PENDING);
+
+        transactionTemplate.open();
+        assertThat(awaitResult(poll).state()).isEqualTo(EnrollmentIntake.State.CREATED);
+    }
+
+    @Test
+    void forgetsTicketsOnceTheirOutcomeHasExpired() throws Exception {
+        EnrollmentIntake intake = intake(enrollmentRepository, transactionTemplate, 100, Duration.ofMillis(1));
+        UUID ticket = intake.submit(3, 1).orElseThrow().ticket();
+        transactionTemplate.open();
+        awaitOutcome(intake, ticket);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            try {
+                intake.poll(ticket, Duration.ZERO);
+                Thread.sleep(50);
+            } catch (ResourceNotFoundException ex) {
+                break;
+            }
+        }
+        assertThatThrownBy(() -> intake.poll(ticket, Duration.ZERO)).isInstanceOf(ResourceNotFoundException.class);
+        assertThatThrownBy(() -> intake.poll(UUID.randomUUID(), Duration.ZERO)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void writesTheQueuedEnrollmentsBeforeShuttingDown() throws Exception {
+        EnrollmentIntake intake = intake(enrollmentRepository, transactionTemplate, 100, TICKET_TTL);
+        List<UUID> tickets = new ArrayList<>();
+        tickets.add(holdTheWriter(intake));
+        for (int courseId = 2; courseId <= 4; courseId++) {
+            tickets.add(intake.submit(4, courseId).orElseThrow().ticket());
+        }
+
+        Thread opener = new Thread(() -> {
+            sleep(200);
+            transactionTemplate.open();
+        });
+        opener.start();
+        intake.destroy();
+        opener.join();
+
+        for (UUID ticket : tickets) {
+            assertThat(((EnrollmentIntake.TicketStatus) intake.poll(ticket, Duration.ZERO).getResult()).state())
+                .isEqualTo(EnrollmentIntake.State.CREATED);
+        }
+        assertThat(intake.submit(4, 5)).isEmpty();
+    }
+
+    private EnrollmentIntake intake(EnrollmentRepository repository, TransactionTemplate template, int capacity, Duration ticketTtl) {
+        EnrollmentIntake intake = new EnrollmentIntake(repository, template, new CourseRosterIndex(), new SimpleMeterRegistry(),
+            capacity, 200, ticketTtl);
+        intakes.add(intake);
+        return intake;
+    }
+
+    /**
+     * Submits an enrollment and waits for the writer to be held in its transaction, so that the next ones queue up.
+     */
+    private UUID holdTheWriter(EnrollmentIntake intake) throws InterruptedException {
+        UUID ticket = intake.submit(99, 1).orElseThrow().ticket();
+        assertThat(transactionTemplate.awaitEntered()).isTrue();
+        return ticket;
+    }
+
+    private static EnrollmentIntake.TicketStatus awaitOutcome(EnrollmentIntake intake, UUID ticket) throws InterruptedException {
+        return awaitResult(intake.poll(ticket, Duration.ofSeconds(10)));
+    }
+
+    private static EnrollmentIntake.TicketStatus awaitResult(DeferredResult<EnrollmentIntake.TicketStatus> result)
+        throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!result.hasResult() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(result.hasResult()).isTrue();
+        return (EnrollmentIntake.TicketStatus) result.getResult();
+    }
+
+    private static Enrollment enrollment(int studentId, int courseId) {
+        Enrollment enrollment = new Enrollment();
+        enrollment.setStudentId(studentId);
+        enrollment.setCourseId(courseId);
+        return enrollment;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Holds every transaction until {@link #open()} is called.
+     */
+    private static final class GatedTransactionTemplate extends TransactionTemplate {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch gate = new CountDownLatch(1);
+        private final AtomicInteger executions = new AtomicInteger();
+
+        GatedTransactionTemplate(PlatformTransactionManager transactionManager) {
+            super(transactionManager);
+        }
+
+        @Override
+        public <T> T execute(TransactionCallback<T> action) throws TransactionException {
+            executions.incrementAndGet();
+            entered.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return super.execute(action);
+        }
+
+        boolean awaitEntered() throws InterruptedException {
+            return entered.await(10, TimeUnit.SECONDS);
+        }
+
+        void open() {
+            gate.countDown();
+        }
+
+        int executions() {
+            return executions.get();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.visits.model.Enrollment;
+import org.springframework.samples.petclinic.visits.model.EnrollmentRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.server.ResponseStatusException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.sql.init.mode=never"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class EnrollmentResourceTest {
+
+    private static final int STUDENT_ID = 1;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    EnrollmentResource enrollmentResource;
+
+    @Autowired
+    EnrollmentRepository enrollmentRepository;
+
+    @Autowired
+    JsonMapper jsonMapper;
+
+    @BeforeEach
+    void setUp() {
+        enrollmentRepository.deleteAll();
+    }
+
+    @Test
+    void acceptsExactlyTheCourseLimitOutOfConcurrentEnrollments() throws Exception {
+        int requests = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> results = new ArrayList<>(requests);
+            for (int courseId = 1; courseId <= requests; courseId++) {
+                int course = courseId;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        enrollmentResource.create(STUDENT_ID, course);
+                        return "created";
+                    } catch (EnrollmentConflictException ex) {
+                        return ex.getMessage();
+                    }
+                }));
+            }
+            start.countDown();
+
+            List<String> outcomes = new ArrayList<>(requests);
+            for (Future<String> result : results) {
+                outcomes.add(result.get(30, TimeUnit.SECONDS));
+            }
+            assertThat(outcomes).filteredOn("created"::equals).hasSize(EnrollmentResource.MAX_COURSES_PER_STUDENT);
+            assertThat(outcomes).filteredOn(EnrollmentResource.LIMIT_REACHED::equals)
+                .hasSize(requests - EnrollmentResource.MAX_COURSES_PER_STUDENT);
+            assertThat(enrollmentRepository.countByStudentId(STUDENT_ID)).isEqualTo(EnrollmentResource.MAX_COURSES_PER_STUDENT);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectsDuplicateEnrollmentsWithConflict() throws Exception {
+        mvc.perform(post("/enrollments/students/{studentId}/courses/{courseId}", STUDENT_ID, 5))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.studentId").value(STUDENT_ID))
+            .andExpect(jsonPath("$.courseId").value(5));
+
+        mvc.perform(post("/enrollments/students/{studentId}/courses/{courseId}", STUDENT_ID, 5))
+            .andExpect(status().isConflict());
+
+        assertThat(enrollmentRepository.countByStudentId(STUDENT_ID)).isEqualTo(1);
+    }
+
+    @Test
+    void retriesAnEnrollmentThatLostALock() {
+        EnrollmentRepository repository = mock(EnrollmentRepository.class);
+        Enrollment enrollment = new Enrollment();
+        enrollment.setStudentId(STUDENT_ID);
+        enrollment.setCourseId(5);
+        when(repository.enrollIfBelowLimit(anyInt(), anyInt(), any(LocalDate.class), anyInt()))
+            .thenThrow(new CannotAcquireLockException("lock wait timeout"))
+            .thenReturn(Optional.of(enrollment));
+
+        assertThat(new EnrollmentResource(repository, null, new CourseRosterIndex()).create(STUDENT_ID, 5)).isSameAs(enrollment);
+        verify(repository, times(2)).enrollIfBelowLimit(anyInt(), anyInt(), any(LocalDate.class), anyInt());
+    }
+
+    @Test
+    void givesUpWithServiceUnavailableWhenLocksKeepFailing() {
+        EnrollmentRepository repository = mock(EnrollmentRepository.class);
+        when(repository.enrollIfBelowLimit(anyInt(), anyInt(), any(LocalDate.class), anyInt()))
+            .thenThrow(new PessimisticLockingFailureException("deadlock"));
+
+        assertThatThrownBy(() -> new EnrollmentResource(repository, null, new CourseRosterIndex()).create(STUDENT_ID, 5))
+            .isInstanceOfSatisfying(ResponseStatusException.class,
+                ex -> assertThat(ex.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        verify(repository, times(EnrollmentResource.LOCK_ATTEMPTS)).enrollIfBelowLimit(anyInt(), anyInt(), any(LocalDate.class), anyInt());
+    }
+
+    @Test
+    void streamsBulkEnrollmentsInTheShapeOfTheQueryStringVariant() throws Exception {
+        enrollmentResource.create(STUDENT_ID, 5);
+        enrollmentResource.create(STUDENT_ID, 6);
+        enrollmentResource.create(2, 5);
+
+        String queried = mvc.perform(get("/enrollments/students/bulk").param("studentId", "1", "2", "3"))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+
+        MvcResult streaming = mvc.perform(post("/enrollments/students/bulk")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[1, 2, 3, 1]"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        String streamed = mvc.perform(asyncDispatch(streaming))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items.length()").value(3))
+            .andReturn().getResponse().getContentAsString();
+
+        assertThat(jsonMapper.readTree(streamed)).isEqualTo(jsonMapper.readTree(queried));
+    }
+
+    @Test
+    void rejectsBulkReadsOfTooManyStudents() throws Exception {
+        String studentIds = IntStream.rangeClosed(1, EnrollmentResource.MAX_BULK_STUDENT_IDS + 1)
+            .mapToObj(Integer::toString)
+            .collect(Collectors.joining(",", "[", "]"));
+
+        mvc.perform(post("/enrollments/students/bulk").contentType(MediaType.APPLICATION_JSON).content(studentIds))
+            .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,86 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Conflict detection over 50k students taking 5 to 7 of 2k courses, with the exams spread over a number of slots,
+ * on a pool of one thread per processor and on a single thread.
+ * <p>
+ * Run it from the module directory with:
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.includeScope=test -Dmdep.outputFile=target/test.classpath
+ * java -cp target/test-classes:target/classes:$(cat target/test.classpath) org.openjdk.jmh.Main ExamConflictDetectorBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExamConflictDetectorBenchmark {
+
+    private static final int STUDENTS = 50_000;
+    private static final int COURSES = 2_000;
+
+    @Param({"20", "60"})
+    public int slotCount;
+
+    @Param({"parallel", "sequential"})
+    public String execution;
+
+    private BitSet[] rosters;
+    private Map<Integer, String> slots;
+    private ForkJoinPool pool;
+    private ExamConflictDetector detector;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        rosters = new BitSet[COURSES + 1];
+        for (int courseId = 1; courseId <= COURSES; courseId++) {
+            rosters[courseId] = new BitSet(STUDENTS + 1);
+        }
+        for (int studentId = 1; studentId <= STUDENTS; studentId++) {
+            int courses = 5 + random.nextInt(3);
+            for (int i = 0; i < courses; i++) {
+                rosters[1 + random.nextInt(COURSES)].set(studentId);
+            }
+        }
+        slots = new HashMap<>();
+        for (int courseId = 1; courseId <= COURSES; courseId++) {
+            slots.put(courseId, "slot-" + random.nextInt(slotCount));
+        }
+        pool = new ForkJoinPool("sequential".equals(execution) ? 1 : Runtime.getRuntime().availableProcessors());
+        detector = new ExamConflictDetector(pool);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Object detect() {
+        return detector.detect(slots, courseId -> rosters[courseId], IntUnaryOperator.identity());
+    }
+}
@@ -0,0 +1,89 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.visits.web.ExamConflictDetector.ConflictReport;
+import org.springframework.samples.petclinic.visits.web.ExamConflictDetector.CoursePairConflict;
+import org.springframework.samples.petclinic.visits.web.ExamConflictDetector.StudentConflict;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExamConflictDetectorTest {
+
+    private final ExamConflictDetector detector = new ExamConflictDetector(2);
+
+    @AfterEach
+    void tearDown() {
+        detector.destroy();
+    }
+
+    @Test
+    void findsTheClashesOfAHandCheckedSchedule() {
+        // Bits are student ordinals, student n having the id 100 + n
+        Map<Integer, BitSet> rosters = Map.of(
+            1, students(0, 1, 2),
+            2, students(1, 2, 3),
+            3, students(2, 4),
+            4, students(0, 2, 3),
+            5, students(4),
+            6, students(2, 3));
+        Map<Integer, String> slots = new HashMap<>();
+        slots.put(1, "A");
+        slots.put(2, "A");
+        slots.put(3, "A");
+        slots.put(4, "B");
+        slots.put(5, null);
+        slots.put(6, "B");
+
+        ConflictReport report = detector.detect(slots, rosters::get, ordinal -> 100 + ordinal);
+
+        assertThat(report.coursePairs()).containsExactly(
+            new CoursePairConflict("A", 1, 2, 2),
+            new CoursePairConflict("A", 1, 3, 1),
+            new CoursePairConflict("A", 2, 3, 1),
+            new CoursePairConflict("B", 4, 6, 2));
+        assertThat(report.students()).containsExactly(
+            new StudentConflict(101, "A", List.of(1, 2)),
+            new StudentConflict(102, "A", List.of(1, 2, 3)),
+            new StudentConflict(102, "B", List.of(4, 6)),
+            new StudentConflict(103, "B", List.of(4, 6)));
+        assertThat(report.conflictedStudents()).isEqualTo(3);
+    }
+
+    @Test
+    void reportsNothingWhenNoSlotIsShared() {
+        Map<Integer, BitSet> rosters = Map.of(1, students(0, 1), 2, students(0, 1));
+
+        ConflictReport report = detector.detect(Map.of(1, "A", 2, "B"), rosters::get, ordinal -> ordinal);
+
+        assertThat(report.coursePairs()).isEmpty();
+        assertThat(report.students()).isEmpty();
+        assertThat(report.conflictedStudents()).isZero();
+    }
+
+    @Test
+    void rejectsSchedulesOfMoreThanTheMaximumNumberOfCourses() {
+        Map<Integer, String> slots = new HashMap<>();
+        IntStream.rangeClosed(1, ExamConflictResource.MAX_COURSES).forEach(courseId -> slots.put(courseId, "A"));
+
+        try (ValidatorFactory validation = Validation.buildDefaultValidatorFactory()) {
+            assertThat(validation.getValidator().validate(new ExamConflictResource.ExamSchedule(slots))).isEmpty();
+            slots.put(ExamConflictResource.MAX_COURSES + 1, "A");
+            assertThat(validation.getValidator().validate(new ExamConflictResource.ExamSchedule(slots))).hasSize(1);
+        }
+    }
+
+    private static BitSet students(int... ordinals) {
+        BitSet students = new BitSet();
+        IntStream.of(ordinals).forEach(students::set);
+        return students;
+    }
+}
@@ -0,0 +1,128 @@
+package org.springframework.samples.petclinic.visits.web;
+
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.visits.web.ExamTimetableSolver.Timetable;
+
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ExamTimetableSolverTest {
+
+    private static final Duration BUDGET = Duration.ofSeconds(10);
+
+    // Courses 1 to 5 in a ring, each sharing a student with the next: an odd cycle, which takes 3 slots
+    private static final int[] RING = {1, 2, 3, 4, 5};
+
+    private final ExamTimetableSolver solver = new ExamTimetableSolver(2, 1);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        solver.destroy();
+    }
+
+    @Test
+    void schedulesAColourableGraphWithoutConflicts() {
+        Map<Integer, BitSet> rosters = ring();
+        // Course 6 shares a student with every course of the ring, so that the whole graph takes 4 slots
+        BitSet hub = new BitSet();
+        for (int courseId : RING) {
+            hub.set(10 + courseId);
+            rosters.get(courseId).set(10 + courseId);
+        }
+        rosters.put(6, hub);
+
+        Timetable timetable = solver.solve(new int[]{1, 2, 3, 4, 5, 6}, rosters::get, 4, BUDGET).orElseThrow();
+
+        assertThat(timetable.conflictFree()).isTrue();
+        assertThat(timetable.studentClashes()).isZero();
+        assertThat(timetable.clashingCoursePairs()).isZero();
+        assertThat(timetable.slots()).containsOnlyKeys(1, 2, 3, 4, 5, 6).allSatisfy((courseId, slot) ->
+            assertThat(Integer.parseInt(slot)).isBetween(1, 4));
+        ExamConflictDetector detector = new ExamConflictDetector(1);
+        try {
+            assertThat(detector.detect(timetable.slots(), rosters::get, IntUnaryOperator.identity()).conflictedStudents()).isZero();
+        } finally {
+            detector.destroy();
+        }
+    }
+
+    @Test
+    void putsEveryCourseInTheOnlySlot() {
+        Timetable timetable = solver.solve(RING, ring()::get, 1, BUDGET).orElseThrow();
+
+        assertThat(timetable.conflictFree()).isFalse();
+        assertThat(timetable.studentClashes()).isEqualTo(5);
+        assertThat(timetable.clashingCoursePairs()).isEqualTo(5);
+        assertThat(timetable.slots()).containsOnlyKeys(1, 2, 3, 4, 5).allSatisfy((courseId, slot) -> assertThat(slot).isEqualTo("1"));
+    }
+
+    @Test
+    void turnsAwayASolveWhileAnotherHoldsTheWorkers() throws Exception {
+        Map<Integer, BitSet> rosters = ring();
+        CountDownLatch building = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<Optional<Timetable>> running = executor.submit(() -> solver.solve(RING, courseId -> {
+            building.countDown();
+            await(release);
+            return rosters.get(courseId);
+        }, 3, BUDGET));
+        assertThat(building.await(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(solver.solve(RING, rosters::get, 3, BUDGET)).isEmpty();
+
+        release.countDown();
+        assertThat(running.get(10, TimeUnit.SECONDS)).hasValueSatisfying(timetable -> assertThat(timetable.conflictFree()).isTrue());
+        assertThat(solver.solve(RING, rosters::get, 3, BUDGET)).isPresent();
+    }
+
+    @Test
+    void rejectsRequestsForMoreThanTheMaximumNumberOfCourses() {
+        List<Integer> courseIds = IntStream.rangeClosed(1, ExamTimetableResource.MAX_COURSES + 1).boxed().toList();
+
+        try (ValidatorFactory validation = Validation.buildDefaultValidatorFactory()) {
+            assertThat(validation.getValidator().validate(
+                new ExamTimetableResource.TimetableRequest(10, courseIds.subList(0, ExamTimetableResource.MAX_COURSES), null))).isEmpty();
+            assertThat(validation.getValidator().validate(new ExamTimetableResource.TimetableRequest(10, courseIds, null))).hasSize(1);
+        }
+    }
+
+    /**
+     * Student n takes courses n and n + 1 of the ring.
+     */
+    private static Map<Integer, BitSet> ring() {
+        Map<Integer, BitSet> rosters = new HashMap<>();
+        for (int courseId : RING) {
+            BitSet students = new BitSet();
+            students.set(courseId);
+            students.set(courseId == 1 ? RING.length : courseId - 1);
+            rosters.put(courseId, students);
+        }
+        return rosters;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
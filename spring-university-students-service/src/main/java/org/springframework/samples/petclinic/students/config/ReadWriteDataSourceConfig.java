@@ -0,0 +1,68 @@
+package org.springframework.samples.petclinic.customers.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.observation.boot.autoconfigure.DataSourceObservationBeanPostProcessor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Splits database traffic between the primary and a read replica when {@code datasource.replica.url} is set:
+ * {@code @Transactional(readOnly = true)} work goes to the replica, everything else to the primary.
+ * <p>
+ * The primary pool is configured as usual under {@code spring.datasource}, the replica pool under
+ * {@code datasource.replica} with the same keys ({@code url}, {@code username}, {@code hikari.*}, ...).
+ * Both pools publish the usual {@code hikaricp.*} metrics, tagged with their pool name.
+ * <p>
+ * JDBC observations must be recorded per pool rather than on the routing data source: recording them there
+ * reads the URL of each connection as soon as it is handed out, before the transaction has flagged it read-only.
+ * Hence the {@code jdbc.excluded-datasource-bean-names} entry in {@code application.yml}.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "datasource.replica", name = "url")
+@EnableConfigurationProperties(ReplicaRoutingProperties.class)
+public class ReadWriteDataSourceConfig {
+
+    static final String REPLICA_PREFIX = "datasource.replica";
+
+    @Bean
+    ReadWriteRoutingDataSource readWriteDataSource(DataSourceProperties primaryProperties, ReplicaRoutingProperties routingProperties,
+                                                   Environment environment, MeterRegistry meterRegistry,
+                                                   ObjectProvider<DataSourceObservationBeanPostProcessor> observation) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = pool("primary", primaryProperties, binder, "spring.datasource.hikari", meterRegistry);
+
+        DataSourceProperties replicaProperties = binder.bind(REPLICA_PREFIX, DataSourceProperties.class)
+            .orElseThrow(() -> new IllegalStateException("No replica datasource configured under " + REPLICA_PREFIX));
+        HikariDataSource replica = pool("replica", replicaProperties, binder, REPLICA_PREFIX + ".hikari", meterRegistry);
+        replica.setReadOnly(true);
+
+        ReplicaLagMonitor lagMonitor = new ReplicaLagMonitor(replica, routingProperties, meterRegistry);
+        return new ReadWriteRoutingDataSource(primary, observed(primary, "primaryDataSource", observation),
+            replica, observed(replica, "replicaDataSource", observation), lagMonitor, meterRegistry);
+    }
+
+    private static DataSource observed(HikariDataSource pool, String name,
+                                       ObjectProvider<DataSourceObservationBeanPostProcessor> observation) {
+        DataSourceObservationBeanPostProcessor postProcessor = observation.getIfAvailable();
+        return postProcessor == null ? pool : (DataSource) postProcessor.postProcessAfterInitialization(pool, name);
+    }
+
+    private static HikariDataSource pool(String name, DataSourceProperties properties, Binder binder, String hikariPrefix,
+                                         MeterRegistry meterRegistry) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        binder.bind(hikariPrefix, Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        pool.setMetricRegistry(meterRegistry);
+        return pool;
+    }
+}
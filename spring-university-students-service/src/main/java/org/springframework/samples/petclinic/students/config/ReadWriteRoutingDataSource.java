@@ -0,0 +1,104 @@
+package org.springframework.samples.petclinic.customers.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Sends the connections of read-only transactions to the replica pool and all others to the primary pool.
+ * <p>
+ * Physical connections are only fetched on the first statement, once the transaction manager has flagged the
+ * connection as read-only. While the {@link ReplicaLagMonitor} reports the replica as lagging or unreachable,
+ * read-only transactions use the primary as well.
+ */
+class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy implements DisposableBean {
+
+    static final String CONNECTIONS_METRIC = "petclinic.datasource.connections";
+
+    private final HikariDataSource primary;
+    private final HikariDataSource replica;
+    private final ReplicaLagMonitor lagMonitor;
+
+    /**
+     * @param primary         the primary pool, closed with this data source
+     * @param primaryAccess   the data source to take primary connections from: the pool itself or a wrapper of it
+     * @param replica         the replica pool, closed with this data source
+     * @param replicaAccess   the data source to take replica connections from: the pool itself or a wrapper of it
+     */
+    ReadWriteRoutingDataSource(HikariDataSource primary, DataSource primaryAccess,
+                               HikariDataSource replica, DataSource replicaAccess,
+                               ReplicaLagMonitor lagMonitor, MeterRegistry registry) {
+        super(new Route(primaryAccess, counter(registry, "primary")));
+        this.primary = primary;
+        this.replica = replica;
+        this.lagMonitor = lagMonitor;
+        setReadOnlyDataSource(new ReadOnlyRoute(replicaAccess, primaryAccess, lagMonitor,
+            counter(registry, "replica"), counter(registry, "fallback")));
+    }
+
+    private static Counter counter(MeterRegistry registry, String route) {
+        return Counter.builder(CONNECTIONS_METRIC)
+            .description("Physical connections handed out, by the pool they were taken from")
+            .tag("route", route)
+            .register(registry);
+    }
+
+    @Override
+    public void destroy() {
+        lagMonitor.close();
+        replica.close();
+        primary.close();
+    }
+
+    private static class Route extends DelegatingDataSource {
+
+        private final Counter counter;
+
+        Route(DataSource target, Counter counter) {
+            super(target);
+            this.counter = counter;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            counter.increment();
+            return super.getConnection();
+        }
+    }
+
+    private static class ReadOnlyRoute extends DelegatingDataSource {
+
+        private final DataSource primary;
+        private final ReplicaLagMonitor lagMonitor;
+        private final Counter replicaCounter;
+        private final Counter fallbackCounter;
+
+        ReadOnlyRoute(DataSource replica, DataSource primary, ReplicaLagMonitor lagMonitor,
+                      Counter replicaCounter, Counter fallbackCounter) {
+            super(replica);
+            this.primary = primary;
+            this.lagMonitor = lagMonitor;
+            this.replicaCounter = replicaCounter;
+            this.fallbackCounter = fallbackCounter;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (lagMonitor.isReplicaUsable()) {
+                replicaCounter.increment();
+                return super.getConnection();
+            }
+            fallbackCounter.increment();
+            Connection connection = primary.getConnection();
+            connection.setReadOnly(true);
+            return connection;
+        }
+    }
+}
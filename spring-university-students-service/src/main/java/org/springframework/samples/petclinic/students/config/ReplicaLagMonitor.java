@@ -0,0 +1,108 @@
+package org.springframework.samples.petclinic.customers.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically measures how far the replica lags behind the primary, and whether it is reachable at all.
+ * The replica is only used while the last measure succeeded and stayed within the configured maximum lag.
+ */
+class ReplicaLagMonitor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final DataSource replica;
+    private final ReplicaRoutingProperties properties;
+    private final ScheduledExecutorService executor;
+
+    // Until the first check the replica is assumed usable, as it would be without any monitoring
+    private volatile boolean usable = true;
+    private volatile double lagSeconds;
+
+    ReplicaLagMonitor(DataSource replica, ReplicaRoutingProperties properties, MeterRegistry registry) {
+        this(replica, properties, registry, true);
+    }
+
+    /**
+     * @param scheduled whether to check the replica every check interval; when not, only {@link #check()} does
+     */
+    ReplicaLagMonitor(DataSource replica, ReplicaRoutingProperties properties, MeterRegistry registry, boolean scheduled) {
+        this.replica = replica;
+        this.properties = properties;
+        Gauge.builder("petclinic.datasource.replica.lag", this, m -> m.lagSeconds)
+            .description("Replication lag of the read replica, as last measured")
+            .baseUnit("seconds")
+            .register(registry);
+        Gauge.builder("petclinic.datasource.replica.usable", this, m -> m.usable ? 1 : 0)
+            .description("Whether read-only transactions currently go to the replica")
+            .register(registry);
+        if (scheduled) {
+            executor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "replica-lag-monitor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = properties.checkInterval().toMillis();
+            executor.scheduleWithFixedDelay(this::check, 0, interval, TimeUnit.MILLISECONDS);
+        } else {
+            executor = null;
+        }
+    }
+
+    boolean isReplicaUsable() {
+        return usable;
+    }
+
+    void check() {
+        boolean wasUsable = usable;
+        try (Connection connection = replica.getConnection()) {
+            if (properties.lagQuery() == null || properties.lagQuery().isBlank()) {
+                lagSeconds = 0;
+                usable = connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } else {
+                lagSeconds = queryLag(connection);
+                usable = lagSeconds * 1000 <= properties.maxLag().toMillis();
+            }
+        } catch (SQLException | RuntimeException ex) {
+            usable = false;
+            log.debug("Could not check the replica", ex);
+        }
+        if (wasUsable != usable) {
+            log.warn(usable ? "Replica is usable again, lag {}s" : "Replica unusable, lag {}s: reads fall back to the primary", lagSeconds);
+        }
+    }
+
+    private double queryLag(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.setQueryTimeout(VALIDATION_TIMEOUT_SECONDS);
+            try (ResultSet rs = statement.executeQuery(properties.lagQuery())) {
+                if (!rs.next()) {
+                    throw new SQLException("Replica lag query returned no row");
+                }
+                double lag = rs.getDouble(1);
+                // A null lag means replication is not running
+                return rs.wasNull() ? Double.POSITIVE_INFINITY : lag;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package org.springframework.samples.petclinic.customers.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * When to stop reading from the replica.
+ *
+ * @param maxLag        replication lag above which read-only transactions fall back to the primary
+ * @param checkInterval how often the replica lag is measured
+ * @param lagQuery      query run on the replica returning its lag in seconds; when empty only the connectivity of
+ *                      the replica is checked
+ */
+@ConfigurationProperties("datasource.replica.routing")
+public record ReplicaRoutingProperties(
+    @DefaultValue("30s") Duration maxLag,
+    @DefaultValue("5s") Duration checkInterval,
+    String lagQuery
+) {
+}
@@ -0,0 +1,47 @@
+package org.springframework.samples.petclinic.customers.model;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+/**
+ * An entry of the outbox: a change to a student, course or course type, written in the same transaction as the change.
+ * Ids are increasing and serve as the cursor of the change feed.
+ */
+@Entity
+@Table(name = "change_events")
+public class ChangeEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "aggregate_type", nullable = false, length = 32)
+    private String aggregateType;
+
+    @Column(name = "aggregate_id", nullable = false)
+    private Integer aggregateId;
+
+    @Column(name = "event_type", nullable = false, length = 32)
+    private String eventType;
+
+    @Column(name = "payload", length = 4000)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    public Long getId() { return id; }
+
+    public String getAggregateType() { return aggregateType; }
+
+    public Integer getAggregateId() { return aggregateId; }
+
+    public String getEventType() { return eventType; }
+
+    @JsonRawValue
+    public String getPayload() { return payload; }
+
+    public Instant getCreatedAt() { return createdAt; }
+}
@@ -0,0 +1,20 @@
+package org.springframework.samples.petclinic.customers.model;
+
+import java.util.List;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Repository class for <code>ChangeEvent</code> domain objects. Events are written through {@link ChangeLog}.
+ */
+public interface ChangeEventRepository extends JpaRepository<ChangeEvent, Long> {
+
+    /**
+     * Not read-only, so that it reads from the primary: the change feed skips a gap in the ids once it has been
+     * seen for a few seconds, which a lagging replica could show for much longer than the primary does.
+     */
+    @Transactional
+    List<ChangeEvent> findByIdGreaterThanOrderByIdAsc(long afterId, Limit limit);
+}
@@ -0,0 +1,95 @@
+package org.springframework.samples.petclinic.customers.model;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Appends {@link ChangeEvent}s to the outbox as part of the caller's transaction, so that an event
+ * exists if and only if its change was committed.
+ * <p>
+ * Once the transaction commits, a {@link ChangesCommitted} application event lets the change feed wake up its readers.
+ */
+@Component
+public class ChangeLog {
+
+    public static final String STUDENT = "student";
+    public static final String COURSE = "course";
+    public static final String COURSE_TYPE = "course_type";
+
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+
+    private static final String INSERT_EVENT =
+        "INSERT INTO change_events (aggregate_type, aggregate_id, event_type, payload, created_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JsonMapper jsonMapper;
+    private final ApplicationEventPublisher publisher;
+
+    public ChangeLog(JdbcTemplate jdbcTemplate, JsonMapper jsonMapper, ApplicationEventPublisher publisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.jsonMapper = jsonMapper;
+        this.publisher = publisher;
+    }
+
+    /**
+     * A change to record: {@code payload} is serialized to JSON, and may be {@code null} for deletions.
+     */
+    public record Change(String aggregateType, Integer aggregateId, String eventType, Object payload) {
+    }
+
+    /**
+     * Published after the commit of a transaction which recorded changes.
+     */
+    public record ChangesCommitted() {
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(String aggregateType, Integer aggregateId, String eventType, Object payload) {
+        appendAll(List.of(new Change(aggregateType, aggregateId, eventType, payload)));
+    }
+
+    /**
+     * Appends all the changes with one JDBC batch.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void appendAll(List<Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> args = changes.stream()
+            .map(change -> new Object[]{change.aggregateType(), change.aggregateId(), change.eventType(),
+                change.payload() == null ? null : jsonMapper.writeValueAsString(change.payload()), now})
+            .toList();
+        jdbcTemplate.batchUpdate(INSERT_EVENT, args);
+        notifyAfterCommit();
+    }
+
+    private void notifyAfterCommit() {
+        // One notification per transaction is enough, however many changes it recorded
+        if (!TransactionSynchronizationManager.hasResource(this)) {
+            TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ChangeLog.this);
+                    if (status == STATUS_COMMITTED) {
+                        publisher.publishEvent(new ChangesCommitted());
+                    }
+                }
+            });
+        }
+    }
+}
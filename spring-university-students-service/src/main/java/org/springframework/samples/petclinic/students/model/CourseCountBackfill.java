@@ -0,0 +1,50 @@
+package org.springframework.samples.petclinic.customers.model;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Brings the course count of every student in line with their courses, once the schema is in place and before the
+ * application takes requests.
+ * <p>
+ * Databases which had courses before the count existed start with every student at 0, which would let a student
+ * already at the course limit register for as many again. Only the students whose count is off are updated, so
+ * later starts leave the table alone.
+ */
+@Component
+public class CourseCountBackfill implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(CourseCountBackfill.class);
+
+    private static final String COUNT_COURSES = "(SELECT COUNT(*) FROM courses c WHERE c.student_id = s.id)";
+    private static final String BACKFILL = "UPDATE students s SET course_count = " + COUNT_COURSES
+        + " WHERE s.course_count IS NULL OR s.course_count <> " + COUNT_COURSES;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public CourseCountBackfill(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        backfill();
+    }
+
+    /**
+     * @return the number of students whose count was corrected
+     */
+    public int backfill() {
+        Integer updated = transactionTemplate.execute(status -> jdbcTemplate.update(BACKFILL));
+        if (updated != null && updated > 0) {
+            log.info("Corrected the course count of {} students", updated);
+        }
+        return updated == null ? 0 : updated;
+    }
+}
@@ -29,8 +29,16 @@ public interface CourseRepository extends JpaRepository<Course, Integer> {
     long countByStudentId(@Param("studentId") int studentId);
 
     /**
-     * Find courses by student ID
+     * Find courses by student ID, fetching their student and type in the same statement
      */
-    @Query("FROM Course c WHERE c.student.id = :studentId")
+    @Query("FROM Course c JOIN FETCH c.student LEFT JOIN FETCH c.type WHERE c.student.id = :studentId")
     List<Course> findByStudentId(@Param("studentId") int studentId);
+
+    /**
+     * Find the summary of a course without loading its student and type entities
+     */
+    @Query("SELECT new org.springframework.samples.petclinic.customers.model.CourseSummary("
+        + "c.id, c.title, s.firstName, s.lastName, c.credits, t.id) "
+        + "FROM Course c JOIN c.student s LEFT JOIN c.type t WHERE c.id = :courseId")
+    Optional<CourseSummary> findSummaryById(@Param("courseId") int courseId);
 }
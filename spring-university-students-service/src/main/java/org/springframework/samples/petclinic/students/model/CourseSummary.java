@@ -0,0 +1,14 @@
+package org.springframework.samples.petclinic.customers.model;
+
+/**
+ * Read-only projection of a {@link Course} with the columns needed to describe it, selected in a single statement.
+ */
+public record CourseSummary(
+    Integer id,
+    String title,
+    String studentFirstName,
+    String studentLastName,
+    int credits,
+    Integer typeId
+) {
+}
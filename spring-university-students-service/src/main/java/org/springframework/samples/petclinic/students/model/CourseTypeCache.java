@@ -0,0 +1,139 @@
+package org.springframework.samples.petclinic.customers.model;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * In-process copy of the {@link CourseType} reference data, which changes far less often than it is read.
+ * <p>
+ * The whole table is loaded at once and kept until {@link #invalidate()} is called after an admin change,
+ * or until the configured time-to-live expires to pick up changes made outside of this instance.
+ */
+@Component
+public class CourseTypeCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CourseTypeCache.class);
+
+    private final CourseRepository courseRepository;
+    private final CourseTypeRepository courseTypeRepository;
+    private final ChangeLog changeLog;
+    private final long ttlNanos;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Bumped by every {@link #invalidate()}. A snapshot is only served while it carries the current generation,
+     * so a load that overlapped an invalidation cannot leave its possibly stale result behind.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    public CourseTypeCache(CourseRepository courseRepository, CourseTypeRepository courseTypeRepository,
+                           ChangeLog changeLog, MeterRegistry registry,
+                           @Value("${courses.type-cache.ttl:10m}") Duration ttl) {
+        this.courseRepository = courseRepository;
+        this.courseTypeRepository = courseTypeRepository;
+        this.changeLog = changeLog;
+        this.ttlNanos = ttl.toNanos();
+        this.hits = counter(registry, "hit");
+        this.misses = counter(registry, "miss");
+    }
+
+    private static Counter counter(MeterRegistry registry, String result) {
+        return Counter.builder("petclinic.course.types.cache")
+            .description("Course type lookups, by whether they were served from memory")
+            .tag("result", result)
+            .register(registry);
+    }
+
+    /**
+     * @return all the course types, ordered by name
+     */
+    public List<CourseType> findAll() {
+        return current().types();
+    }
+
+    public Optional<CourseType> findById(int typeId) {
+        return Optional.ofNullable(current().byId().get(typeId));
+    }
+
+    /**
+     * Saves a course type and invalidates the cache once the transaction completes,
+     * so that the change is visible to the next lookup.
+     */
+    @Transactional
+    public CourseType save(CourseType type) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                invalidate();
+            }
+        });
+        boolean created = type.getId() == null;
+        CourseType saved = courseTypeRepository.save(type);
+        changeLog.append(ChangeLog.COURSE_TYPE, saved.getId(), created ? ChangeLog.CREATED : ChangeLog.UPDATED, saved);
+        return saved;
+    }
+
+    /**
+     * Drops the cached types: the next lookup reloads them.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (isValid(current)) {
+            hits.increment();
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (!isValid(current)) {
+                misses.increment();
+                long loading = generation.get();
+                current = Snapshot.of(courseRepository.findCourseTypes(), loading);
+                snapshot = current;
+                log.debug("Loaded {} course types", current.types().size());
+            } else {
+                hits.increment();
+            }
+            return current;
+        }
+    }
+
+    private boolean isValid(Snapshot current) {
+        return current != null && current.generation() == generation.get() && !current.expired(ttlNanos);
+    }
+
+    private record Snapshot(List<CourseType> types, Map<Integer, CourseType> byId, long generation, long loadedAt) {
+
+        static Snapshot of(List<CourseType> types, long generation) {
+            return new Snapshot(List.copyOf(types),
+                types.stream().collect(Collectors.toUnmodifiableMap(CourseType::getId, Function.identity())),
+                generation, System.nanoTime());
+        }
+
+        boolean expired(long ttlNanos) {
+            return System.nanoTime() - loadedAt > ttlNanos;
+        }
+    }
+}
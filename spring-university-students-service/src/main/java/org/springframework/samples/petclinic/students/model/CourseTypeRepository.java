@@ -0,0 +1,9 @@
+package org.springframework.samples.petclinic.customers.model;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Repository class for <code>CourseType</code> domain objects. Reads should go through {@link CourseTypeCache}.
+ */
+public interface CourseTypeRepository extends JpaRepository<CourseType, Integer> {
+}
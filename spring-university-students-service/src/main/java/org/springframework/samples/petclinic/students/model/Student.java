@@ -1,7 +1,11 @@
 package org.springframework.samples.petclinic.customers.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 
+// A course may hold a lazy reference to its student; its proxy internals are not part of the JSON
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @Entity
 @Table(name = "students")
 public class Student {
@@ -22,6 +26,15 @@ public class Student {
     private String email;
     private String department;
 
+    /**
+     * Number of courses the student is registered for. Only ever changed through the guarded
+     * updates of {@link StudentRepository}, never by saving the entity, and set from the courses
+     * on startup by {@link CourseCountBackfill}.
+     */
+    @JsonIgnore
+    @Column(name = "course_count", nullable = false, updatable = false, columnDefinition = "integer default 0")
+    private int courseCount;
+
     public Integer getId() { return id; }
     public void setId(Integer id) { this.id = id; }
 
@@ -39,4 +52,6 @@ public class Student {
 
     public String getDepartment() { return department; }
     public void setDepartment(String department) { this.department = department; }
+
+    public int getCourseCount() { return courseCount; }
 }
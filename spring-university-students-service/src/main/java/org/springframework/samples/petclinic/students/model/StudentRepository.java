@@ -1,9 +1,62 @@
 package org.springframework.samples.petclinic.customers.model;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 /**
  * Repository class for <code>Student</code> domain objects
  */
 public interface StudentRepository extends JpaRepository<Student, Integer> {
+
+    List<Student> findByIdIn(Collection<Integer> ids);
+
+    /**
+     * Loads the given students and locks their rows until the end of the transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Student s WHERE s.id IN :ids")
+    List<Student> lockByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Keyset pagination: the next {@code limit} students whose id is greater than {@code afterId}.
+     */
+    List<Student> findByIdGreaterThanOrderByIdAsc(int afterId, Limit limit);
+
+    /**
+     * Forward-only, read-only cursor over every student ordered by id.
+     * Must be consumed inside a transaction and closed afterwards.
+     */
+    @Query("SELECT s FROM Student s ORDER BY s.id")
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Student> streamAllOrderById();
+
+    /**
+     * Atomically takes one course slot for the student if fewer than {@code maxCourses} are taken.
+     * @return 1 if a slot was taken, 0 if the student is at the limit or does not exist
+     */
+    @Modifying
+    @Query("UPDATE Student s SET s.courseCount = s.courseCount + 1 WHERE s.id = :studentId AND s.courseCount < :maxCourses")
+    int reserveCourseSlot(@Param("studentId") int studentId, @Param("maxCourses") int maxCourses);
+
+    /**
+     * Gives back a course slot taken by {@link #reserveCourseSlot}.
+     */
+    @Modifying
+    @Query("UPDATE Student s SET s.courseCount = s.courseCount - 1 WHERE s.id = :studentId AND s.courseCount > 0")
+    int releaseCourseSlot(@Param("studentId") int studentId);
 }
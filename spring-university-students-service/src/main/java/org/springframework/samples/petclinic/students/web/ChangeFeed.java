@@ -0,0 +1,164 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.samples.petclinic.customers.model.ChangeEvent;
+import org.springframework.samples.petclinic.customers.model.ChangeEventRepository;
+import org.springframework.samples.petclinic.customers.model.ChangeLog;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reads the outbox in id order for the change feed, and holds long-polling readers until there is something to read.
+ * <p>
+ * Ids are handed out when events are inserted, not when they commit, so an id can become visible after a greater one.
+ * A page therefore stops before a gap in the ids, until the gap has been seen for longer than the configured timeout,
+ * in which case it was left by a rolled back transaction. Gaps are timed from when this instance first saw them, not
+ * from the insertion time of their neighbours: a neighbour inserted early by a slow transaction would otherwise make
+ * a gap look old as soon as it appears.
+ * <p>
+ * Waiting readers are checked when a local transaction commits changes, and every poll interval for changes
+ * committed by other instances.
+ */
+@Component
+class ChangeFeed implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeFeed.class);
+
+    // Expired gaps are remembered for a while so that lagging readers skip them without waiting again
+    private static final int GAP_RETENTION_TIMEOUTS = 12;
+
+    private final ChangeEventRepository changeEventRepository;
+    private final long gapTimeoutNanos;
+    /**
+     * The gaps seen so far, by first missing id. Ids are only ever filled in, so a gap seen later is always
+     * within one seen before, if any.
+     */
+    private final NavigableMap<Long, Gap> gaps = new ConcurrentSkipListMap<>();
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean checkScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "change-feed");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    ChangeFeed(ChangeEventRepository changeEventRepository,
+               @Value("${changes.gap-timeout:5s}") Duration gapTimeout,
+               @Value("${changes.poll-interval:1s}") Duration pollInterval) {
+        this.changeEventRepository = changeEventRepository;
+        this.gapTimeoutNanos = gapTimeout.toNanos();
+        executor.scheduleWithFixedDelay(this::checkWaiters, pollInterval.toMillis(), pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    record ChangePage(
+        List<ChangeEvent> events,
+        long next
+    ) {
+    }
+
+    /**
+     * @return the events after {@code since}, up to the first gap that may still be filled
+     */
+    ChangePage read(long since, int limit) {
+        List<ChangeEvent> events = changeEventRepository.findByIdGreaterThanOrderByIdAsc(since, Limit.of(limit));
+        long now = System.nanoTime();
+        List<ChangeEvent> page = new ArrayList<>(events.size());
+        long next = since;
+        for (ChangeEvent event : events) {
+            if (event.getId() != next + 1 && now - gapSeenAt(next + 1, event.getId() - 1, now) < gapTimeoutNanos) {
+                break;
+            }
+            page.add(event);
+            next = event.getId();
+        }
+        return new ChangePage(page, next);
+    }
+
+    /**
+     * @return when the missing ids from {@code first} to {@code last} were first seen missing
+     */
+    private long gapSeenAt(long first, long last, long now) {
+        Map.Entry<Long, Gap> known = gaps.floorEntry(first);
+        if (known != null && known.getValue().last() >= last) {
+            return known.getValue().seenAt();
+        }
+        gaps.values().removeIf(gap -> now - gap.seenAt() > gapTimeoutNanos * GAP_RETENTION_TIMEOUTS);
+        Gap seen = gaps.putIfAbsent(first, new Gap(last, now));
+        return seen == null ? now : seen.seenAt();
+    }
+
+    /**
+     * Reads the events after {@code since}, waiting up to {@code wait} for some to be committed if there are none yet.
+     */
+    DeferredResult<ChangePage> poll(long since, int limit, Duration wait) {
+        DeferredResult<ChangePage> result = new DeferredResult<>(wait.toMillis());
+        ChangePage page = read(since, limit);
+        if (!page.events().isEmpty() || wait.isZero()) {
+            result.setResult(page);
+            return result;
+        }
+        Waiter waiter = new Waiter(since, limit, result);
+        result.onTimeout(() -> result.setResult(new ChangePage(List.of(), since)));
+        result.onCompletion(() -> waiters.remove(waiter));
+        waiters.add(waiter);
+        return result;
+    }
+
+    @EventListener
+    void onChangesCommitted(ChangeLog.ChangesCommitted event) {
+        // Do not make the committing request thread read the feed for the waiting ones
+        if (!waiters.isEmpty() && checkScheduled.compareAndSet(false, true)) {
+            executor.execute(this::checkWaiters);
+        }
+    }
+
+    private void checkWaiters() {
+        checkScheduled.set(false);
+        for (Waiter waiter : waiters) {
+            if (waiter.result().isSetOrExpired()) {
+                waiters.remove(waiter);
+                continue;
+            }
+            try {
+                ChangePage page = read(waiter.since(), waiter.limit());
+                if (!page.events().isEmpty()) {
+                    waiter.result().setResult(page);
+                    waiters.remove(waiter);
+                }
+            } catch (RuntimeException ex) {
+                log.warn("Could not read the change feed for a waiting reader", ex);
+                waiter.result().setErrorResult(ex);
+                waiters.remove(waiter);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private record Waiter(long since, int limit, DeferredResult<ChangePage> result) {
+    }
+
+    private record Gap(long last, long seenAt) {
+    }
+}
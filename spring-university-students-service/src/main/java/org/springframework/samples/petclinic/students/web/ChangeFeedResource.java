@@ -0,0 +1,40 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import io.micrometer.core.annotation.Timed;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.time.Duration;
+
+/**
+ * Change feed REST controller: the changes to students, courses and course types, in commit order
+ */
+@RestController
+@Timed("petclinic.changes")
+class ChangeFeedResource {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_WAIT_SECONDS = 30;
+
+    private final ChangeFeed changeFeed;
+
+    ChangeFeedResource(ChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * Read the changes after the {@code since} cursor: pass the {@code next} cursor of a page to get the following changes.
+     * With {@code wait}, the request is held until there are changes or the wait is over.
+     */
+    @GetMapping("/changes")
+    public DeferredResult<ChangeFeed.ChangePage> getChanges(
+        @RequestParam(name = "since", defaultValue = "0") @Min(0) long since,
+        @RequestParam(name = "limit", defaultValue = "100") @Min(1) @Max(MAX_PAGE_SIZE) int limit,
+        @RequestParam(name = "wait", defaultValue = "0") @Min(0) @Max(MAX_WAIT_SECONDS) int waitSeconds) {
+        return changeFeed.poll(since, limit, Duration.ofSeconds(waitSeconds));
+    }
+}
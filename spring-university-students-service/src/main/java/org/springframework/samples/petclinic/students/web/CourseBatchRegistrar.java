@@ -0,0 +1,203 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.samples.petclinic.customers.model.ChangeLog;
+import org.springframework.samples.petclinic.customers.model.CourseType;
+import org.springframework.samples.petclinic.customers.model.CourseTypeCache;
+import org.springframework.samples.petclinic.customers.model.Student;
+import org.springframework.samples.petclinic.customers.model.StudentRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.springframework.samples.petclinic.customers.web.CourseResource.MAX_COURSES_PER_STUDENT;
+
+/**
+ * Registers courses in bulk: items are validated in memory, course types come from {@link CourseTypeCache},
+ * the students involved are locked in a few statements and the courses are written as JDBC batches.
+ * <p>
+ * {@link org.springframework.samples.petclinic.customers.model.Course} ids are database identities,
+ * which keeps Hibernate from batching their inserts, so the rows are written through {@link JdbcTemplate}
+ * in the same transaction instead.
+ */
+@Component
+class CourseBatchRegistrar {
+
+    private static final Logger log = LoggerFactory.getLogger(CourseBatchRegistrar.class);
+
+    private static final int CHUNK_SIZE = 500;
+    private static final String INSERT_COURSE =
+        "INSERT INTO courses (title, credits, student_id, course_type_id) VALUES (?, ?, ?, ?)";
+    private static final String ADD_COURSE_SLOTS =
+        "UPDATE students SET course_count = course_count + ? WHERE id = ?";
+
+    private final CourseTypeCache courseTypeCache;
+    private final StudentRepository studentRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Validator validator;
+    private final ChangeLog changeLog;
+
+    CourseBatchRegistrar(CourseTypeCache courseTypeCache, StudentRepository studentRepository,
+                         JdbcTemplate jdbcTemplate, Validator validator, ChangeLog changeLog) {
+        this.courseTypeCache = courseTypeCache;
+        this.studentRepository = studentRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.validator = validator;
+        this.changeLog = changeLog;
+    }
+
+    @Transactional
+    public List<Result> register(List<Item> items) {
+        Result[] results = new Result[items.size()];
+        List<Integer> accepted = new ArrayList<>(items.size());
+
+        for (int i = 0; i < items.size(); i++) {
+            String error = validate(items.get(i));
+            if (error != null) {
+                results[i] = Result.rejected(i, items.get(i), error);
+            } else {
+                accepted.add(i);
+            }
+        }
+
+        Map<Integer, Integer> freeSlots = lockStudents(accepted.stream().map(i -> items.get(i).studentId()).collect(Collectors.toSet()));
+
+        List<Integer> toInsert = new ArrayList<>(accepted.size());
+        Map<Integer, Integer> slotsTaken = new LinkedHashMap<>();
+        for (int i : accepted) {
+            Item item = items.get(i);
+            Integer free = freeSlots.get(item.studentId());
+            if (free == null) {
+                results[i] = Result.rejected(i, item, "Student " + item.studentId() + " not found");
+            } else if (slotsTaken.getOrDefault(item.studentId(), 0) >= free) {
+                results[i] = Result.rejected(i, item, "Student cannot register for more than " + MAX_COURSES_PER_STUDENT + " courses per semester");
+            } else {
+                slotsTaken.merge(item.studentId(), 1, Integer::sum);
+                toInsert.add(i);
+            }
+        }
+
+        for (int from = 0; from < toInsert.size(); from += CHUNK_SIZE) {
+            List<Integer> chunk = toInsert.subList(from, Math.min(from + CHUNK_SIZE, toInsert.size()));
+            List<Integer> ids = insertCourses(chunk.stream().map(items::get).toList());
+            List<ChangeLog.Change> changes = new ArrayList<>(chunk.size());
+            for (int j = 0; j < chunk.size(); j++) {
+                int i = chunk.get(j);
+                results[i] = Result.registered(i, items.get(i), ids.get(j));
+                changes.add(courseCreated(items.get(i), ids.get(j)));
+            }
+            changeLog.appendAll(changes);
+        }
+        addCourseSlots(slotsTaken);
+
+        log.info("Registered {} of {} courses in batch", toInsert.size(), items.size());
+        return List.of(results);
+    }
+
+    private String validate(Item item) {
+        if (item.course() == null) {
+            return "course is required";
+        }
+        Set<ConstraintViolation<CourseRequest>> violations = validator.validate(item.course());
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+            .map(v -> v.getPropertyPath() + " " + v.getMessage())
+            .sorted()
+            .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * @return the number of free course slots of each existing student
+     */
+    private Map<Integer, Integer> lockStudents(Set<Integer> studentIds) {
+        List<Integer> ids = new ArrayList<>(studentIds);
+        Map<Integer, Integer> freeSlots = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+            for (Student student : studentRepository.lockByIdIn(ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size())))) {
+                freeSlots.put(student.getId(), MAX_COURSES_PER_STUDENT - student.getCourseCount());
+            }
+        }
+        return freeSlots;
+    }
+
+    private List<Integer> insertCourses(List<Item> chunk) {
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_COURSE, Statement.RETURN_GENERATED_KEYS),
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    Item item = chunk.get(i);
+                    ps.setString(1, item.course().title());
+                    ps.setInt(2, item.course().credits());
+                    ps.setInt(3, item.studentId());
+                    // Unknown types are left empty, as for single registrations
+                    if (courseTypeCache.findById(item.course().typeId()).isPresent()) {
+                        ps.setInt(4, item.course().typeId());
+                    } else {
+                        ps.setNull(4, Types.INTEGER);
+                    }
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return chunk.size();
+                }
+            }, keys);
+        return keys.getKeyList().stream()
+            .map(row -> ((Number) row.values().iterator().next()).intValue())
+            .toList();
+    }
+
+    private ChangeLog.Change courseCreated(Item item, int courseId) {
+        Integer typeId = courseTypeCache.findById(item.course().typeId()).map(CourseType::getId).orElse(null);
+        return new ChangeLog.Change(ChangeLog.COURSE, courseId, ChangeLog.CREATED,
+            new CourseChange(courseId, item.studentId(), item.course().title(), item.course().credits(), typeId));
+    }
+
+    private void addCourseSlots(Map<Integer, Integer> slotsTaken) {
+        List<Object[]> args = slotsTaken.entrySet().stream()
+            .map(e -> new Object[]{e.getValue(), e.getKey()})
+            .toList();
+        jdbcTemplate.batchUpdate(ADD_COURSE_SLOTS, args);
+    }
+
+    record Item(
+        int studentId,
+        CourseRequest course
+    ) {
+    }
+
+    record Result(
+        int index,
+        int studentId,
+        Integer courseId,
+        String error
+    ) {
+        static Result registered(int index, Item item, int courseId) {
+            return new Result(index, item.studentId(), courseId, null);
+        }
+
+        static Result rejected(int index, Item item, String error) {
+            return new Result(index, item.studentId(), null, error);
+        }
+    }
+}
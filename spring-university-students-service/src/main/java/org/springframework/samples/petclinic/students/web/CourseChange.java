@@ -0,0 +1,21 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import org.springframework.samples.petclinic.customers.model.Course;
+
+/**
+ * Payload of the course events of the change feed
+ */
+record CourseChange(
+    Integer id,
+    Integer studentId,
+    String title,
+    int credits,
+    Integer typeId
+) {
+    static CourseChange of(Course course) {
+        return new CourseChange(course.getId(),
+            course.getStudent() == null ? null : course.getStudent().getId(),
+            course.getTitle(), course.getCredits(),
+            course.getType() == null ? null : course.getType().getId());
+    }
+}
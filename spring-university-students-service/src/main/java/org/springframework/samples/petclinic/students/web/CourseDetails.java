@@ -1,6 +1,7 @@
 package org.springframework.samples.petclinic.customers.web;
 
 import org.springframework.samples.petclinic.customers.model.Course;
+import org.springframework.samples.petclinic.customers.model.CourseSummary;
 import org.springframework.samples.petclinic.customers.model.CourseType;
 
 /**
@@ -18,4 +19,10 @@ record CourseDetails(
              course.getStudent().getFirstName() + " " + course.getStudent().getLastName(),
              course.getCredits(), course.getType());
     }
+
+    public CourseDetails(CourseSummary summary, CourseType type) {
+        this(summary.id(), summary.title(),
+             summary.studentFirstName() + " " + summary.studentLastName(),
+             summary.credits(), type);
+    }
 }
@@ -0,0 +1,13 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.CONFLICT)
+public class CourseLimitExceededException extends RuntimeException {
+
+    public CourseLimitExceededException(String message) {
+        super(message);
+    }
+
+}
@@ -1,12 +1,15 @@
 package org.springframework.samples.petclinic.customers.web;
 
 import io.micrometer.core.annotation.Timed;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.samples.petclinic.customers.model.*;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 
@@ -18,39 +21,90 @@ import java.util.List;
 class CourseResource {
 
     private static final Logger log = LoggerFactory.getLogger(CourseResource.class);
-    private static final int MAX_COURSES_PER_STUDENT = 7;
+    static final int MAX_COURSES_PER_STUDENT = 7;
+
+    static final int MAX_BATCH_SIZE = 10_000;
 
     private final CourseRepository courseRepository;
     private final StudentRepository studentRepository;
+    private final CourseTypeCache courseTypeCache;
+    private final CourseBatchRegistrar courseBatchRegistrar;
+    private final ChangeLog changeLog;
 
-    CourseResource(CourseRepository courseRepository, StudentRepository studentRepository) {
+    CourseResource(CourseRepository courseRepository, StudentRepository studentRepository,
+                   CourseTypeCache courseTypeCache, CourseBatchRegistrar courseBatchRegistrar,
+                   ChangeLog changeLog) {
         this.courseRepository = courseRepository;
         this.studentRepository = studentRepository;
+        this.courseTypeCache = courseTypeCache;
+        this.courseBatchRegistrar = courseBatchRegistrar;
+        this.changeLog = changeLog;
     }
 
     @GetMapping("/courseTypes")
     public List<CourseType> getCourseTypes() {
-        return courseRepository.findCourseTypes();
+        return courseTypeCache.findAll();
+    }
+
+    @PostMapping("/courseTypes")
+    @ResponseStatus(HttpStatus.CREATED)
+    public CourseType createCourseType(@Valid @RequestBody CourseTypeRequest courseTypeRequest) {
+        CourseType type = new CourseType();
+        type.setName(courseTypeRequest.name());
+        return saveCourseType(type);
+    }
+
+    @PutMapping("/courseTypes/{typeId}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void updateCourseType(@PathVariable("typeId") int typeId, @Valid @RequestBody CourseTypeRequest courseTypeRequest) {
+        if (courseTypeCache.findById(typeId).isEmpty()) {
+            throw new ResourceNotFoundException("Course type " + typeId + " not found");
+        }
+        // Cached instances are shared between requests and must not be modified
+        CourseType type = new CourseType();
+        type.setId(typeId);
+        type.setName(courseTypeRequest.name());
+        saveCourseType(type);
+    }
+
+    private CourseType saveCourseType(CourseType type) {
+        log.info("Saving course type {}", type.getName());
+        return courseTypeCache.save(type);
     }
 
     @PostMapping("/students/{studentId}/courses")
     @ResponseStatus(HttpStatus.CREATED)
+    @Transactional
     public Course processCreationForm(
         @RequestBody CourseRequest courseRequest,
         @PathVariable("studentId") @Min(1) int studentId) {
 
-        Student student = studentRepository.findById(studentId)
-            .orElseThrow(() -> new ResourceNotFoundException("Student " + studentId + " not found"));
-
-        // Validate max 7 courses per student
-        long currentCoursesCount = courseRepository.countByStudentId(studentId);
-        if (currentCoursesCount >= MAX_COURSES_PER_STUDENT) {
-            throw new IllegalStateException("Student cannot register for more than " + MAX_COURSES_PER_STUDENT + " courses per semester");
+        // Check and take a slot in one statement: the row lock it holds until commit
+        // serializes concurrent registrations of the same student
+        if (studentRepository.reserveCourseSlot(studentId, MAX_COURSES_PER_STUDENT) == 0) {
+            if (!studentRepository.existsById(studentId)) {
+                throw new ResourceNotFoundException("Student " + studentId + " not found");
+            }
+            throw new CourseLimitExceededException("Student cannot register for more than " + MAX_COURSES_PER_STUDENT + " courses per semester");
         }
-
+        // The reservation matched the student's row, so a reference is enough to link the course
         final Course course = new Course();
-        course.setStudent(student);
-        return save(course, courseRequest);
+        course.setStudent(studentRepository.getReferenceById(studentId));
+        Course saved = save(course, courseRequest);
+        changeLog.append(ChangeLog.COURSE, saved.getId(), ChangeLog.CREATED, CourseChange.of(saved));
+        return saved;
+    }
+
+    /**
+     * Registers many courses, for one or many students, in a single transaction.
+     * Every item gets its own result: a rejected item does not fail the others.
+     */
+    @PostMapping("/students/courses/batch")
+    public List<CourseBatchRegistrar.Result> processBatchCreationForm(@RequestBody List<CourseBatchRegistrar.Item> items) {
+        if (items.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_BATCH_SIZE + " courses per batch");
+        }
+        return courseBatchRegistrar.register(items);
     }
 
     @GetMapping("/students/{studentId}/courses")
@@ -60,17 +114,19 @@ class CourseResource {
 
     @PutMapping("/students/*/courses/{courseId}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Transactional
     public void processUpdateForm(@RequestBody CourseRequest courseRequest) {
         int courseId = courseRequest.id();
         Course course = findCourseById(courseId);
-        save(course, courseRequest);
+        Course saved = save(course, courseRequest);
+        changeLog.append(ChangeLog.COURSE, saved.getId(), ChangeLog.UPDATED, CourseChange.of(saved));
     }
 
     private Course save(final Course course, final CourseRequest courseRequest) {
         course.setTitle(courseRequest.title());
         course.setCredits(courseRequest.credits());
 
-        courseRepository.findCourseTypeById(courseRequest.typeId())
+        courseTypeCache.findById(courseRequest.typeId())
             .ifPresent(course::setType);
 
         log.info("Saving course {}", course);
@@ -79,15 +135,22 @@ class CourseResource {
 
     @GetMapping("students/*/courses/{courseId}")
     public CourseDetails findCourse(@PathVariable("courseId") int courseId) {
-        Course course = findCourseById(courseId);
-        return new CourseDetails(course);
+        CourseSummary summary = courseRepository.findSummaryById(courseId)
+            .orElseThrow(() -> new ResourceNotFoundException("Course " + courseId + " not found"));
+        CourseType type = summary.typeId() == null ? null : courseTypeCache.findById(summary.typeId()).orElse(null);
+        return new CourseDetails(summary, type);
     }
 
     @DeleteMapping("students/*/courses/{courseId}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Transactional
     public void deleteCourse(@PathVariable("courseId") int courseId) {
         Course course = findCourseById(courseId);
         courseRepository.delete(course);
+        changeLog.append(ChangeLog.COURSE, course.getId(), ChangeLog.DELETED, CourseChange.of(course));
+        if (course.getStudent() != null) {
+            studentRepository.releaseCourseSlot(course.getStudent().getId());
+        }
         log.info("Deleted course {}", course);
     }
 
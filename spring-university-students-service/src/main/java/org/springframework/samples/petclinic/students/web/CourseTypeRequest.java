@@ -0,0 +1,6 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import jakarta.validation.constraints.NotBlank;
+
+record CourseTypeRequest(@NotBlank String name) {
+}
@@ -0,0 +1,58 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.samples.petclinic.customers.model.Student;
+import org.springframework.samples.petclinic.customers.model.StudentRepository;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.OutputStream;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Reads every student from a database cursor, to write them as a JSON array or hand them
+ * to a consumer one at a time, so that memory stays flat whatever the size of the table.
+ */
+@Component
+class StudentExporter {
+
+    private final StudentRepository studentRepository;
+    private final EntityManager entityManager;
+    private final JsonMapper jsonMapper;
+
+    StudentExporter(StudentRepository studentRepository, EntityManager entityManager, JsonMapper jsonMapper) {
+        this.studentRepository = studentRepository;
+        this.entityManager = entityManager;
+        this.jsonMapper = jsonMapper;
+    }
+
+    @Transactional(readOnly = true)
+    public void writeAll(OutputStream out) {
+        try (Stream<Student> students = studentRepository.streamAllOrderById();
+             JsonGenerator generator = jsonMapper.createGenerator(out)) {
+            generator.writeStartArray();
+            students.forEach(student -> {
+                jsonMapper.writeValue(generator, student);
+                // Keep the persistence context from growing with the table
+                entityManager.detach(student);
+            });
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Hands every student to {@code consumer}, detached from the persistence context.
+     */
+    @Transactional(readOnly = true)
+    public void forEach(Consumer<Student> consumer) {
+        try (Stream<Student> students = studentRepository.streamAllOrderById()) {
+            students.forEach(student -> {
+                entityManager.detach(student);
+                consumer.accept(student);
+            });
+        }
+    }
+}
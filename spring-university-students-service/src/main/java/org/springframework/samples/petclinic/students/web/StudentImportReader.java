@@ -0,0 +1,231 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Incremental readers for student import files: rows are parsed one at a time as they are pulled,
+ * so that the file never has to be held in memory.
+ */
+abstract class StudentImportReader implements Iterator<StudentImportReader.Row> {
+
+    /**
+     * A parsed row, or the reason it could not be parsed. {@code line} is the line the row starts on.
+     */
+    record Row(long line, StudentRequest request, String error) {
+    }
+
+    private Row next;
+
+    /**
+     * Reads RFC 4180 CSV with a header row naming the {@link StudentRequest} fields, in any order and case.
+     * A record with an unterminated quote, text after a closing quote or more fields than the header is
+     * reported as an error row.
+     */
+    static StudentImportReader csv(Reader reader) {
+        return new Csv(new BufferedReader(reader));
+    }
+
+    /**
+     * Reads one JSON {@link StudentRequest} per line; blank lines are skipped.
+     */
+    static StudentImportReader ndjson(Reader reader, JsonMapper jsonMapper) {
+        return new NdJson(new BufferedReader(reader), jsonMapper);
+    }
+
+    /**
+     * @return the next row, or {@code null} at the end of the input
+     */
+    protected abstract Row read() throws IOException;
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = read();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Row next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Row row = next;
+        next = null;
+        return row;
+    }
+
+    private static final class NdJson extends StudentImportReader {
+
+        private final BufferedReader reader;
+        private final JsonMapper jsonMapper;
+        private long lineNumber;
+
+        NdJson(BufferedReader reader, JsonMapper jsonMapper) {
+            this.reader = reader;
+            this.jsonMapper = jsonMapper;
+        }
+
+        @Override
+        protected Row read() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+                lineNumber++;
+            } while (line.isBlank());
+            try {
+                return new Row(lineNumber, jsonMapper.readValue(line, StudentRequest.class), null);
+            } catch (JacksonException ex) {
+                return new Row(lineNumber, null, "Invalid JSON: " + ex.getOriginalMessage());
+            }
+        }
+    }
+
+    private static final class Csv extends StudentImportReader {
+
+        private static final List<String> COLUMNS = List.of("firstname", "lastname", "studentid", "email", "department");
+
+        private final BufferedReader reader;
+        private long lineNumber = 1;
+        private int[] columnIndexes;
+        private int headerSize;
+
+        Csv(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        protected Row read() throws IOException {
+            if (columnIndexes == null && !readHeader()) {
+                return null;
+            }
+            long startLine;
+            Record record;
+            List<String> fields;
+            do {
+                startLine = lineNumber;
+                record = readRecord();
+                if (record == null) {
+                    return null;
+                }
+                fields = record.fields();
+            } while (record.error() == null && fields.size() == 1 && fields.get(0).isBlank());
+            if (record.error() != null) {
+                return new Row(startLine, null, record.error());
+            }
+            if (fields.size() > headerSize) {
+                return new Row(startLine, null, "Expected at most " + headerSize + " fields, found " + fields.size());
+            }
+            String[] values = new String[COLUMNS.size()];
+            for (int i = 0; i < values.length; i++) {
+                int index = columnIndexes[i];
+                if (index >= 0 && index < fields.size() && !fields.get(index).isEmpty()) {
+                    values[i] = fields.get(index);
+                }
+            }
+            return new Row(startLine, new StudentRequest(values[0], values[1], values[2], values[3], values[4]), null);
+        }
+
+        private boolean readHeader() throws IOException {
+            Record record = readRecord();
+            if (record == null) {
+                return false;
+            }
+            List<String> header = record.fields();
+            headerSize = header.size();
+            if (!header.isEmpty() && header.get(0).startsWith("\uFEFF")) {
+                header.set(0, header.get(0).substring(1));
+            }
+            Map<String, Integer> positions = new HashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                positions.putIfAbsent(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            columnIndexes = COLUMNS.stream().mapToInt(column -> positions.getOrDefault(column, -1)).toArray();
+            return true;
+        }
+
+        /**
+         * @return the fields of the next record, which may span several lines when quoted, or {@code null} at the end of the input.
+         * A malformed record is still read up to its end, so that the following one is parsed from its start.
+         */
+        private Record readRecord() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            String error = null;
+            boolean quoted = false;
+            boolean closed = false;
+            while (c != -1) {
+                if (closed && c != ',' && c != '\n' && c != '\r' && error == null) {
+                    error = "Unexpected character after a closing quote";
+                }
+                if (quoted) {
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            field.append('"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                            closed = true;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            lineNumber++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    closed = false;
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        reader.mark(1);
+                        if (reader.read() != '\n') {
+                            reader.reset();
+                        }
+                    }
+                    lineNumber++;
+                    break;
+                } else {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+            if (quoted) {
+                error = "Unterminated quoted field";
+            }
+            fields.add(field.toString());
+            return new Record(fields, error);
+        }
+
+        private record Record(List<String> fields, String error) {
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.samples.petclinic.customers.model.ChangeLog;
+import org.springframework.samples.petclinic.customers.model.Student;
+import org.springframework.samples.petclinic.customers.web.mapper.StudentEntityMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Imports students from a stream of rows, one batch at a time: each batch is validated in parallel,
+ * checked for student ids that are already taken and written as one JDBC batch in its own transaction.
+ * <p>
+ * Progress and every rejected row are reported as they happen, so that a caller can stream them back
+ * while the rest of the file is still being read.
+ */
+@Component
+class StudentImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentImporter.class);
+
+    static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_STUDENT =
+        "INSERT INTO students (first_name, last_name, student_id, email, department, course_count) VALUES (?, ?, ?, ?, ?, 0)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final StudentEntityMapper studentEntityMapper;
+    private final StudentSearchIndex searchIndex;
+    private final ChangeLog changeLog;
+
+    StudentImporter(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, Validator validator,
+                    StudentEntityMapper studentEntityMapper, StudentSearchIndex searchIndex, ChangeLog changeLog) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.studentEntityMapper = studentEntityMapper;
+        this.searchIndex = searchIndex;
+        this.changeLog = changeLog;
+    }
+
+    /**
+     * Imports every row of {@code rows}, handing {@code listener} an error event for each rejected row,
+     * a progress event after each batch and a summary event at the end.
+     */
+    public Event importStudents(Iterator<StudentImportReader.Row> rows, Consumer<Event> listener) {
+        long start = System.nanoTime();
+        // Student ids seen earlier in the same file, which the database cannot flag until they are written
+        Set<String> seenStudentIds = new HashSet<>();
+        long processed = 0;
+        long imported = 0;
+        long failed = 0;
+        List<StudentImportReader.Row> batch = new ArrayList<>(BATCH_SIZE);
+        while (rows.hasNext()) {
+            batch.add(rows.next());
+            if (batch.size() == BATCH_SIZE || !rows.hasNext()) {
+                List<RowResult> results = importBatch(batch, seenStudentIds);
+                for (RowResult result : results) {
+                    if (result.error() != null) {
+                        failed++;
+                        listener.accept(Event.error(result.row().line(), result.error()));
+                    } else {
+                        imported++;
+                    }
+                }
+                processed += batch.size();
+                listener.accept(Event.progress(processed, imported, failed));
+                batch.clear();
+            }
+        }
+        Event summary = Event.summary(processed, imported, failed, (System.nanoTime() - start) / 1_000_000);
+        log.info("Imported {} of {} students in {} ms", imported, processed, summary.elapsedMillis());
+        listener.accept(summary);
+        return summary;
+    }
+
+    private List<RowResult> importBatch(List<StudentImportReader.Row> batch, Set<String> seenStudentIds) {
+        List<RowResult> results = batch.parallelStream()
+            .map(this::validate)
+            .collect(Collectors.toCollection(ArrayList::new));
+
+        List<RowResult> valid = new ArrayList<>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            RowResult result = results.get(i);
+            if (result.error() == null) {
+                if (seenStudentIds.add(result.student().getStudentId())) {
+                    valid.add(result);
+                } else {
+                    results.set(i, result.rejected("Duplicate student id " + result.student().getStudentId() + " in file"));
+                }
+            }
+        }
+        if (valid.isEmpty()) {
+            return results;
+        }
+
+        Set<String> taken = existingStudentIds(valid);
+        List<RowResult> toInsert = new ArrayList<>(valid.size());
+        for (RowResult result : valid) {
+            if (taken.contains(result.student().getStudentId())) {
+                replace(results, result, result.rejected("Student id " + result.student().getStudentId() + " already exists"));
+            } else {
+                toInsert.add(result);
+            }
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> insert(toInsert));
+        } catch (DataAccessException ex) {
+            // Most likely a student id taken concurrently: retry one row at a time to find the culprits
+            log.debug("Batch insert failed, retrying row by row", ex);
+            for (RowResult result : toInsert) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insert(List.of(result)));
+                } catch (DuplicateKeyException rowEx) {
+                    result.student().setId(null);
+                    replace(results, result, result.rejected("Student id " + result.student().getStudentId() + " already exists"));
+                } catch (DataAccessException rowEx) {
+                    // The driver's message names tables and columns: it goes to the log, not to the caller
+                    log.warn("Could not import the student on line {}", result.row().line(), rowEx);
+                    result.student().setId(null);
+                    replace(results, result, result.rejected("Could not save student"));
+                }
+            }
+        }
+        toInsert.stream()
+            .map(RowResult::student)
+            .filter(student -> student.getId() != null)
+            .forEach(searchIndex::index);
+        return results;
+    }
+
+    private RowResult validate(StudentImportReader.Row row) {
+        if (row.error() != null) {
+            return new RowResult(row, null, row.error());
+        }
+        Set<ConstraintViolation<StudentRequest>> violations = validator.validate(row.request());
+        if (!violations.isEmpty()) {
+            return new RowResult(row, null, violations.stream()
+                .map(v -> v.getPropertyPath() + " " + v.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", ")));
+        }
+        return new RowResult(row, studentEntityMapper.map(new Student(), row.request()), null);
+    }
+
+    private Set<String> existingStudentIds(List<RowResult> results) {
+        List<String> studentIds = results.stream().map(result -> result.student().getStudentId()).toList();
+        return new HashSet<>(namedJdbcTemplate.queryForList(
+            "SELECT student_id FROM students WHERE student_id IN (:ids)",
+            new MapSqlParameterSource("ids", studentIds), String.class));
+    }
+
+    private void insert(List<RowResult> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_STUDENT, Statement.RETURN_GENERATED_KEYS),
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    Student student = results.get(i).student();
+                    ps.setString(1, student.getFirstName());
+                    ps.setString(2, student.getLastName());
+                    ps.setString(3, student.getStudentId());
+                    ps.setString(4, student.getEmail());
+                    ps.setString(5, student.getDepartment());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return results.size();
+                }
+            }, keys);
+        List<Integer> ids = keys.getKeyList().stream()
+            .map(row -> ((Number) row.values().iterator().next()).intValue())
+            .toList();
+        for (int i = 0; i < results.size(); i++) {
+            results.get(i).student().setId(ids.get(i));
+        }
+        changeLog.appendAll(results.stream()
+            .map(result -> new ChangeLog.Change(ChangeLog.STUDENT, result.student().getId(), ChangeLog.CREATED, result.student()))
+            .toList());
+    }
+
+    private static void replace(List<RowResult> results, RowResult previous, RowResult replacement) {
+        // Results are few per batch and rejections rare: a linear scan is cheaper than maintaining an index
+        for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) == previous) {
+                results.set(i, replacement);
+                return;
+            }
+        }
+    }
+
+    private record RowResult(StudentImportReader.Row row, Student student, String error) {
+
+        RowResult rejected(String error) {
+            return new RowResult(row, null, error);
+        }
+    }
+
+    /**
+     * One line of the import report.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record Event(
+        String type,
+        Long line,
+        String error,
+        Long processed,
+        Long imported,
+        Long failed,
+        Long elapsedMillis
+    ) {
+        static Event error(long line, String error) {
+            return new Event("error", line, error, null, null, null, null);
+        }
+
+        static Event progress(long processed, long imported, long failed) {
+            return new Event("progress", null, null, processed, imported, failed, null);
+        }
+
+        static Event summary(long processed, long imported, long failed, long elapsedMillis) {
+            return new Event("summary", null, null, processed, imported, failed, elapsedMillis);
+        }
+    }
+}
@@ -1,17 +1,39 @@
 package org.springframework.samples.petclinic.customers.web;
 
 import io.micrometer.core.annotation.Timed;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.samples.petclinic.customers.model.ChangeLog;
 import org.springframework.samples.petclinic.customers.model.Student;
 import org.springframework.samples.petclinic.customers.model.StudentRepository;
 import org.springframework.samples.petclinic.customers.web.mapper.StudentEntityMapper;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import tools.jackson.databind.json.JsonMapper;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -24,12 +46,31 @@ class StudentResource {
 
     private static final Logger log = LoggerFactory.getLogger(StudentResource.class);
 
+    static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    static final int MAX_LOOKUP_IDS = 10_000;
+    // Keeps each IN list well under the bind parameter limits of the supported databases
+    static final int LOOKUP_CHUNK_SIZE = 500;
+
     private final StudentRepository studentRepository;
     private final StudentEntityMapper studentEntityMapper;
+    private final StudentExporter studentExporter;
+    private final StudentSearchIndex searchIndex;
+    private final StudentImporter studentImporter;
+    private final ChangeLog changeLog;
+    private final JsonMapper jsonMapper;
 
-    StudentResource(StudentRepository studentRepository, StudentEntityMapper studentEntityMapper) {
+    StudentResource(StudentRepository studentRepository, StudentEntityMapper studentEntityMapper,
+                    StudentExporter studentExporter, StudentSearchIndex searchIndex,
+                    StudentImporter studentImporter, ChangeLog changeLog, JsonMapper jsonMapper) {
         this.studentRepository = studentRepository;
         this.studentEntityMapper = studentEntityMapper;
+        this.studentExporter = studentExporter;
+        this.searchIndex = searchIndex;
+        this.studentImporter = studentImporter;
+        this.changeLog = changeLog;
+        this.jsonMapper = jsonMapper;
     }
 
     /**
@@ -37,9 +78,42 @@ class StudentResource {
      */
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
+    @Transactional
     public Student createStudent(@Valid @RequestBody StudentRequest studentRequest) {
         Student student = studentEntityMapper.map(new Student(), studentRequest);
-        return studentRepository.save(student);
+        Student saved = studentRepository.save(student);
+        changeLog.append(ChangeLog.STUDENT, saved.getId(), ChangeLog.CREATED, saved);
+        searchIndex.indexAfterCommit(saved);
+        return saved;
+    }
+
+    /**
+     * Import Students from a CSV file with a header row, or from one JSON student per line.
+     * The file is read as it arrives and the import report is streamed back as NDJSON:
+     * one line per rejected row, one per batch written and a final summary.
+     */
+    @PostMapping(value = "/import", consumes = {TEXT_CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public void importStudents(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Charset charset = request.getCharacterEncoding() != null ? Charset.forName(request.getCharacterEncoding()) : StandardCharsets.UTF_8;
+        Reader reader = new InputStreamReader(request.getInputStream(), charset);
+        StudentImportReader rows = MediaType.APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(request.getContentType()))
+            ? StudentImportReader.ndjson(reader, jsonMapper)
+            : StudentImportReader.csv(reader);
+
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream out = response.getOutputStream();
+        studentImporter.importStudents(rows, event -> {
+            try {
+                out.write(jsonMapper.writeValueAsBytes(event));
+                out.write('\n');
+                if (!"error".equals(event.type())) {
+                    out.flush();
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
     }
 
     /**
@@ -51,11 +125,55 @@ class StudentResource {
     }
 
     /**
-     * Read List of Students
+     * Read List of Students, streamed from a database cursor
      */
     @GetMapping
-    public List<Student> findAll() {
-        return studentRepository.findAll();
+    public ResponseEntity<StreamingResponseBody> findAll() {
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(studentExporter::writeAll);
+    }
+
+    /**
+     * Read a page of Students, ordered by id: pass the {@code next} cursor of a page as {@code after} to get the following one
+     */
+    @GetMapping(params = "size")
+    public StudentPage findPage(@RequestParam(name = "after", defaultValue = "0") int afterId,
+                                @RequestParam("size") @Min(1) @Max(MAX_PAGE_SIZE) int size) {
+        List<Student> students = studentRepository.findByIdGreaterThanOrderByIdAsc(afterId, Limit.of(size));
+        Integer next = students.size() < size ? null : students.get(students.size() - 1).getId();
+        return new StudentPage(students, next);
+    }
+
+    /**
+     * Read several Students at once, in the order of {@code ids}
+     */
+    @GetMapping(params = "ids")
+    public List<StudentLookup> findStudents(@RequestParam("ids") List<Integer> ids) {
+        return lookup(ids);
+    }
+
+    /**
+     * Read several Students at once, for id sets too large for a query string
+     */
+    @PostMapping("/lookup")
+    public List<StudentLookup> lookupStudents(@RequestBody List<Integer> ids) {
+        return lookup(ids);
+    }
+
+    private List<StudentLookup> lookup(List<Integer> ids) {
+        if (ids.size() > MAX_LOOKUP_IDS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At most " + MAX_LOOKUP_IDS + " ids per lookup");
+        }
+        List<Integer> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        Map<Integer, Student> found = new HashMap<>(distinct.size() * 2);
+        for (int from = 0; from < distinct.size(); from += LOOKUP_CHUNK_SIZE) {
+            List<Integer> chunk = distinct.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, distinct.size()));
+            studentRepository.findByIdIn(chunk).forEach(student -> found.put(student.getId(), student));
+        }
+        return ids.stream()
+            .map(id -> new StudentLookup(id, found.containsKey(id), found.get(id)))
+            .toList();
     }
 
     /**
@@ -63,12 +181,38 @@ class StudentResource {
      */
     @PutMapping(value = "/{studentId}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Transactional
     public void updateStudent(@PathVariable("studentId") @Min(1) int studentId, @Valid @RequestBody StudentRequest studentRequest) {
         final Student student = studentRepository.findById(studentId)
                 .orElseThrow(() -> new ResourceNotFoundException("Student " + studentId + " not found"));
 
         studentEntityMapper.map(student, studentRequest);
         log.info("Saving student {}", student);
-        studentRepository.save(student);
+        Student saved = studentRepository.save(student);
+        changeLog.append(ChangeLog.STUDENT, saved.getId(), ChangeLog.UPDATED, saved);
+        searchIndex.indexAfterCommit(saved);
+    }
+
+    /**
+     * Search Students by name, student id or email: every term of {@code q} must match a term of the student,
+     * exactly, as a prefix or with one typo
+     */
+    @GetMapping("/search")
+    public List<Student> searchStudents(@RequestParam("q") String query,
+                                        @RequestParam(name = "limit", defaultValue = "20") @Min(1) @Max(MAX_SEARCH_RESULTS) int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    record StudentLookup(
+        Integer id,
+        boolean found,
+        Student student
+    ) {
+    }
+
+    record StudentPage(
+        List<Student> items,
+        Integer next
+    ) {
     }
 }
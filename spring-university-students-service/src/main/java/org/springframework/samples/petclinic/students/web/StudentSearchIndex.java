@@ -0,0 +1,249 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import org.springframework.samples.petclinic.customers.model.Student;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory search index over the first name, last name, student id and email of every student.
+ * <p>
+ * Each field is split into lower-case terms, which are kept in three structures:
+ * <ul>
+ *     <li>a sorted term dictionary mapping each term to the students having it, for exact and prefix matches,</li>
+ *     <li>a single-deletion neighbourhood mapping every term with one character removed back to the term,
+ *     which finds the terms within one edit of a query term without scanning the dictionary,</li>
+ *     <li>the terms of each student, so that an update only touches the terms that changed.</li>
+ * </ul>
+ * Every query term must match, exactly, as a prefix or within one edit; results are ranked by how closely they match.
+ * Writes are serialized, reads never block.
+ */
+@Component
+class StudentSearchIndex {
+
+    static final int EXACT_SCORE = 3;
+    static final int PREFIX_SCORE = 2;
+    static final int FUZZY_SCORE = 1;
+
+    // Shorter terms have too many neighbours within one edit to be useful
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    private final NavigableMap<String, Set<Integer>> postings = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<String>> deletions = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<String>> termsByStudent = new ConcurrentHashMap<>();
+    private final Map<Integer, Student> students = new ConcurrentHashMap<>();
+
+    /**
+     * Adds the student to the index, or replaces the previously indexed version of it.
+     */
+    public synchronized void index(Student student) {
+        Integer id = student.getId();
+        Set<String> terms = terms(student);
+        Set<String> previous = termsByStudent.getOrDefault(id, Set.of());
+        for (String term : previous) {
+            if (!terms.contains(term)) {
+                removePosting(term, id);
+            }
+        }
+        for (String term : terms) {
+            if (!previous.contains(term)) {
+                addPosting(term, id);
+            }
+        }
+        termsByStudent.put(id, terms);
+        students.put(id, student);
+    }
+
+    /**
+     * Indexes the student once the current transaction commits, so that a rolled back change is never searchable.
+     * Without a transaction, the student is indexed right away.
+     */
+    public void indexAfterCommit(Student student) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            index(student);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                index(student);
+            }
+        });
+    }
+
+    public synchronized void remove(int studentId) {
+        Set<String> previous = termsByStudent.remove(studentId);
+        if (previous != null) {
+            previous.forEach(term -> removePosting(term, studentId));
+        }
+        students.remove(studentId);
+    }
+
+    public int size() {
+        return students.size();
+    }
+
+    /**
+     * @return at most {@code limit} students matching every term of {@code query}, best matches first
+     */
+    public List<Student> search(String query, int limit) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Integer> scores = null;
+        for (String queryTerm : queryTerms) {
+            Map<Integer, Integer> termScores = match(queryTerm);
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                scores.keySet().retainAll(termScores.keySet());
+                scores.replaceAll((id, score) -> score + termScores.get(id));
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+        List<Map.Entry<Integer, Integer>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Integer, Integer>comparingByValue(Comparator.reverseOrder())
+            .thenComparing(Map.Entry.comparingByKey()));
+        List<Student> results = new ArrayList<>(Math.min(limit, ranked.size()));
+        for (Map.Entry<Integer, Integer> entry : ranked) {
+            Student student = students.get(entry.getKey());
+            if (student != null) {
+                results.add(student);
+                if (results.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @return the best score of every student having a term matching {@code queryTerm}
+     */
+    private Map<Integer, Integer> match(String queryTerm) {
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (Map.Entry<String, Set<Integer>> entry : postings.subMap(queryTerm, true, queryTerm + Character.MAX_VALUE, false).entrySet()) {
+            int score = entry.getKey().equals(queryTerm) ? EXACT_SCORE : PREFIX_SCORE;
+            entry.getValue().forEach(id -> scores.merge(id, score, Math::max));
+        }
+        if (queryTerm.length() >= MIN_FUZZY_LENGTH) {
+            for (String candidate : fuzzyCandidates(queryTerm)) {
+                if (withinOneEdit(queryTerm, candidate)) {
+                    postings.getOrDefault(candidate, Set.of()).forEach(id -> scores.merge(id, FUZZY_SCORE, Math::max));
+                }
+            }
+        }
+        return scores;
+    }
+
+    private Set<String> fuzzyCandidates(String queryTerm) {
+        Set<String> candidates = new HashSet<>();
+        // A term within one edit shares the query, or one of its deletions, with the term or one of its deletions
+        if (postings.containsKey(queryTerm)) {
+            candidates.add(queryTerm);
+        }
+        candidates.addAll(deletions.getOrDefault(queryTerm, Set.of()));
+        for (String deletion : deletionsOf(queryTerm)) {
+            if (postings.containsKey(deletion)) {
+                candidates.add(deletion);
+            }
+            candidates.addAll(deletions.getOrDefault(deletion, Set.of()));
+        }
+        return candidates;
+    }
+
+    private void addPosting(String term, Integer id) {
+        postings.compute(term, (t, ids) -> {
+            if (ids == null) {
+                deletionsOf(t).forEach(d -> deletions.computeIfAbsent(d, k -> ConcurrentHashMap.newKeySet()).add(t));
+                ids = ConcurrentHashMap.newKeySet();
+            }
+            ids.add(id);
+            return ids;
+        });
+    }
+
+    private void removePosting(String term, Integer id) {
+        postings.computeIfPresent(term, (t, ids) -> {
+            ids.remove(id);
+            if (!ids.isEmpty()) {
+                return ids;
+            }
+            deletionsOf(t).forEach(d -> deletions.computeIfPresent(d, (k, terms) -> {
+                terms.remove(t);
+                return terms.isEmpty() ? null : terms;
+            }));
+            return null;
+        });
+    }
+
+    private static Set<String> terms(Student student) {
+        Set<String> terms = new HashSet<>();
+        for (String field : new String[]{student.getFirstName(), student.getLastName(), student.getStudentId(), student.getEmail()}) {
+            terms.addAll(tokenize(field));
+        }
+        return terms;
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static List<String> deletionsOf(String term) {
+        if (term.length() < MIN_FUZZY_LENGTH) {
+            return List.of();
+        }
+        List<String> result = new ArrayList<>(term.length());
+        for (int i = 0; i < term.length(); i++) {
+            result.add(term.substring(0, i) + term.substring(i + 1));
+        }
+        return result;
+    }
+
+    /**
+     * Optimal string alignment distance of at most one: one insertion, deletion, substitution or transposition.
+     */
+    static boolean withinOneEdit(String a, String b) {
+        int la = a.length();
+        int lb = b.length();
+        if (Math.abs(la - lb) > 1) {
+            return false;
+        }
+        int i = 0;
+        while (i < la && i < lb && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (la == lb) {
+            if (i == la || a.substring(i + 1).equals(b.substring(i + 1))) {
+                return true;
+            }
+            return i + 1 < la && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                && a.substring(i + 2).equals(b.substring(i + 2));
+        }
+        return la > lb ? a.substring(i + 1).equals(b.substring(i)) : a.substring(i).equals(b.substring(i + 1));
+    }
+}
@@ -0,0 +1,32 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fills the {@link StudentSearchIndex} from the database once the application is ready.
+ * From then on {@link StudentResource} keeps it current.
+ */
+@Component
+class StudentSearchIndexLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(StudentSearchIndexLoader.class);
+
+    private final StudentExporter studentExporter;
+    private final StudentSearchIndex searchIndex;
+
+    StudentSearchIndexLoader(StudentExporter studentExporter, StudentSearchIndex searchIndex) {
+        this.studentExporter = studentExporter;
+        this.searchIndex = searchIndex;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void load() {
+        long start = System.nanoTime();
+        studentExporter.forEach(searchIndex::index);
+        log.info("Indexed {} students for search in {} ms", searchIndex.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
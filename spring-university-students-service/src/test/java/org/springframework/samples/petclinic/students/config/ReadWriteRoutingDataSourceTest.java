@@ -0,0 +1,116 @@
+package org.springframework.samples.petclinic.customers.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two in-memory HSQLDB databases stand in for the primary and its replica: each holds a row naming itself.
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+    private ReplicaLagMonitor lagMonitor;
+    private ReadWriteRoutingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+        new JdbcTemplate(replica).execute("CREATE TABLE replica_lag (seconds INTEGER)");
+        new JdbcTemplate(replica).update("INSERT INTO replica_lag VALUES (0)");
+
+        lagMonitor = new ReplicaLagMonitor(replica,
+            new ReplicaRoutingProperties(Duration.ofSeconds(30), Duration.ofHours(1), "SELECT seconds FROM replica_lag"),
+            registry, false);
+        dataSource = new ReadWriteRoutingDataSource(primary, primary, replica, replica, lagMonitor, registry);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Test
+    void routesReadOnlyTransactionsToTheReplica() {
+        lagMonitor.check();
+
+        assertThat(whoAmI(readOnly)).isEqualTo("replica");
+        assertThat(whoAmI(readWrite)).isEqualTo("primary");
+        assertThat(whoAmI()).isEqualTo("primary");
+        assertThat(connections("replica")).isEqualTo(1);
+        assertThat(connections("fallback")).isZero();
+    }
+
+    @Test
+    void fallsBackToThePrimaryWhileTheReplicaLags() {
+        new JdbcTemplate(replica).update("UPDATE replica_lag SET seconds = 120");
+        lagMonitor.check();
+
+        assertThat(lagMonitor.isReplicaUsable()).isFalse();
+        assertThat(whoAmI(readOnly)).isEqualTo("primary");
+        assertThat(connections("fallback")).isEqualTo(1);
+        assertThat(registry.get("petclinic.datasource.replica.lag").gauge().value()).isEqualTo(120);
+
+        new JdbcTemplate(replica).update("UPDATE replica_lag SET seconds = 2");
+        lagMonitor.check();
+
+        assertThat(whoAmI(readOnly)).isEqualTo("replica");
+    }
+
+    @Test
+    void fallsBackToThePrimaryWhenTheReplicaIsDown() {
+        replica.close();
+        lagMonitor.check();
+
+        assertThat(lagMonitor.isReplicaUsable()).isFalse();
+        assertThat(whoAmI(readOnly)).isEqualTo("primary");
+    }
+
+    private String whoAmI() {
+        return jdbcTemplate.queryForObject("SELECT name FROM whoami", String.class);
+    }
+
+    private String whoAmI(TransactionTemplate transaction) {
+        return transaction.execute(status -> whoAmI());
+    }
+
+    private double connections(String route) {
+        return registry.get(ReadWriteRoutingDataSource.CONNECTIONS_METRIC).tag("route", route).counter().count();
+    }
+
+    private static HikariDataSource database(String name) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl("jdbc:hsqldb:mem:routing-" + name);
+        pool.setUsername("sa");
+        pool.setPoolName(name);
+        JdbcTemplate jdbc = new JdbcTemplate(pool);
+        jdbc.execute("DROP TABLE whoami IF EXISTS");
+        jdbc.execute("DROP TABLE replica_lag IF EXISTS");
+        jdbc.execute("CREATE TABLE whoami (name VARCHAR(20))");
+        jdbc.update("INSERT INTO whoami VALUES (?)", name);
+        return pool;
+    }
+}
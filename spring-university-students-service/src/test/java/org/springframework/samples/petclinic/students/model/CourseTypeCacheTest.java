@@ -0,0 +1,56 @@
+package org.springframework.samples.petclinic.customers.model;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CourseTypeCacheTest {
+
+    private final CourseRepository courseRepository = mock(CourseRepository.class);
+
+    private final CourseTypeCache cache = new CourseTypeCache(courseRepository, mock(CourseTypeRepository.class),
+        mock(ChangeLog.class), new SimpleMeterRegistry(), Duration.ofHours(1));
+
+    @Test
+    void servesTheLoadedTypesUntilInvalidated() {
+        when(courseRepository.findCourseTypes()).thenReturn(List.of(type(1, "lecture")), List.of(type(1, "seminar")));
+
+        assertThat(cache.findById(1)).get().extracting(CourseType::getName).isEqualTo("lecture");
+        assertThat(cache.findById(1)).get().extracting(CourseType::getName).isEqualTo("lecture");
+        verify(courseRepository, times(1)).findCourseTypes();
+
+        cache.invalidate();
+
+        assertThat(cache.findById(1)).get().extracting(CourseType::getName).isEqualTo("seminar");
+    }
+
+    @Test
+    void doesNotKeepALoadThatOverlappedAnInvalidation() {
+        when(courseRepository.findCourseTypes())
+            .thenAnswer(invocation -> {
+                // A type is renamed and the cache invalidated after this query read the old name
+                cache.invalidate();
+                return List.of(type(1, "lecture"));
+            })
+            .thenReturn(List.of(type(1, "seminar")));
+
+        assertThat(cache.findAll()).extracting(CourseType::getName).containsExactly("lecture");
+        assertThat(cache.findAll()).extracting(CourseType::getName).containsExactly("seminar");
+        verify(courseRepository, times(2)).findCourseTypes();
+    }
+
+    private static CourseType type(int id, String name) {
+        CourseType type = new CourseType();
+        type.setId(id);
+        type.setName(name);
+        return type;
+    }
+}
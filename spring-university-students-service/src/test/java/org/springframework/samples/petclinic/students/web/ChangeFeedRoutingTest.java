@@ -0,0 +1,68 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.samples.petclinic.customers.model.ChangeEvent;
+import org.springframework.samples.petclinic.customers.model.ChangeEventRepository;
+import org.springframework.samples.petclinic.customers.model.ChangeLog;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The replica is a separate, empty database. It has no lag table until the test creates one, so that the
+ * application starts on the primary alone.
+ */
+@SpringBootTest(properties = {
+    "datasource.replica.url=" + ChangeFeedRoutingTest.REPLICA_URL,
+    "datasource.replica.username=sa",
+    "datasource.replica.routing.check-interval=100ms",
+    "datasource.replica.routing.lag-query=SELECT seconds FROM replica_lag",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.sql.init.mode=never"
+})
+@ActiveProfiles("test")
+class ChangeFeedRoutingTest {
+
+    static final String REPLICA_URL = "jdbc:hsqldb:mem:changefeed-replica";
+
+    @Autowired
+    ChangeFeed changeFeed;
+
+    @Autowired
+    ChangeLog changeLog;
+
+    @Autowired
+    ChangeEventRepository changeEventRepository;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Test
+    void readsTheFeedFromThePrimaryWhileTheReplicaIsBehind() throws InterruptedException {
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        replica.execute("CREATE TABLE change_events (id BIGINT PRIMARY KEY, aggregate_type VARCHAR(32), aggregate_id INTEGER,"
+            + " event_type VARCHAR(32), payload VARCHAR(4000), created_at TIMESTAMP)");
+        replica.execute("CREATE TABLE replica_lag (seconds INTEGER)");
+        replica.update("INSERT INTO replica_lag VALUES (0)");
+        for (int i = 0; i < 50 && registry.get("petclinic.datasource.replica.usable").gauge().value() == 0; i++) {
+            Thread.sleep(100);
+        }
+        assertThat(registry.get("petclinic.datasource.replica.usable").gauge().value()).isEqualTo(1);
+
+        long since = changeFeed.read(0, 1000).next();
+        transactionTemplate.executeWithoutResult(status -> changeLog.append(ChangeLog.STUDENT, 42, ChangeLog.DELETED, null));
+
+        // Read-only work goes to the replica, which has not seen the event
+        assertThat(changeEventRepository.findAll()).isEmpty();
+        assertThat(changeFeed.read(since, 10).events()).extracting(ChangeEvent::getAggregateId).containsExactly(42);
+    }
+}
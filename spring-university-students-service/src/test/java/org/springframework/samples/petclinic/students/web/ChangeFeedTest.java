@@ -0,0 +1,105 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.samples.petclinic.customers.model.ChangeEvent;
+import org.springframework.samples.petclinic.customers.model.ChangeLog;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs on an MVCC database, so that a transaction left open does not block the feed readers.
+ */
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:hsqldb:mem:changefeed;hsqldb.tx=mvcc",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.sql.init.mode=never",
+    "changes.gap-timeout=" + ChangeFeedTest.GAP_TIMEOUT_MILLIS + "ms"
+})
+@ActiveProfiles("test")
+class ChangeFeedTest {
+
+    static final long GAP_TIMEOUT_MILLIS = 500;
+
+    @Autowired
+    ChangeFeed changeFeed;
+
+    @Autowired
+    ChangeLog changeLog;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void waitsForATransactionHeldOpenPastTheGapTimeout() throws Exception {
+        long since = changeFeed.read(0, 1000).next();
+        CountDownLatch inserted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> slow = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+            append(1);
+            inserted.countDown();
+            await(release);
+        }));
+        assertThat(inserted.await(10, TimeUnit.SECONDS)).isTrue();
+        transactionTemplate.executeWithoutResult(status -> append(2));
+
+        // The committed event was inserted longer than the gap timeout ago, but its gap has only just been seen
+        Thread.sleep(GAP_TIMEOUT_MILLIS * 2);
+        ChangeFeed.ChangePage page = changeFeed.read(since, 10);
+        assertThat(page.events()).isEmpty();
+        assertThat(page.next()).isEqualTo(since);
+
+        release.countDown();
+        slow.get(10, TimeUnit.SECONDS);
+        assertThat(aggregateIds(changeFeed.read(since, 10))).containsExactly(1, 2);
+    }
+
+    @Test
+    void skipsAGapOnceItHasBeenSeenForTheGapTimeout() throws Exception {
+        long since = changeFeed.read(0, 1000).next();
+        transactionTemplate.executeWithoutResult(status -> {
+            append(3);
+            status.setRollbackOnly();
+        });
+        transactionTemplate.executeWithoutResult(status -> append(4));
+
+        assertThat(changeFeed.read(since, 10).events()).isEmpty();
+
+        Thread.sleep(GAP_TIMEOUT_MILLIS * 2);
+        assertThat(aggregateIds(changeFeed.read(since, 10))).containsExactly(4);
+    }
+
+    private void append(int aggregateId) {
+        changeLog.append(ChangeLog.STUDENT, aggregateId, ChangeLog.DELETED, null);
+    }
+
+    private static List<Integer> aggregateIds(ChangeFeed.ChangePage page) {
+        return page.events().stream().map(ChangeEvent::getAggregateId).toList();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
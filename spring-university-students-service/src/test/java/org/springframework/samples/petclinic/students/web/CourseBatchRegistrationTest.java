@@ -0,0 +1,178 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.customers.model.ChangeEvent;
+import org.springframework.samples.petclinic.customers.model.ChangeEventRepository;
+import org.springframework.samples.petclinic.customers.model.ChangeLog;
+import org.springframework.samples.petclinic.customers.model.Course;
+import org.springframework.samples.petclinic.customers.model.CourseRepository;
+import org.springframework.samples.petclinic.customers.model.CourseType;
+import org.springframework.samples.petclinic.customers.model.CourseTypeCache;
+import org.springframework.samples.petclinic.customers.model.Student;
+import org.springframework.samples.petclinic.customers.model.StudentRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.sql.init.mode=never"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CourseBatchRegistrationTest {
+
+    private static final int ALREADY_REGISTERED = 5;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    CourseRepository courseRepository;
+
+    @Autowired
+    CourseTypeCache courseTypeCache;
+
+    @Autowired
+    ChangeEventRepository changeEventRepository;
+
+    private Student ada;
+    private Student alan;
+    private CourseType type;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        courseRepository.deleteAll();
+        studentRepository.deleteAll();
+
+        ada = saveStudent("Ada", "Lovelace", "STU-BATCH-1");
+        alan = saveStudent("Alan", "Turing", "STU-BATCH-2");
+
+        type = new CourseType();
+        type.setName("seminar");
+        type = courseTypeCache.save(type);
+
+        for (int i = 0; i < ALREADY_REGISTERED; i++) {
+            mvc.perform(post("/students/{studentId}/courses", ada.getId())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"id\":0,\"title\":\"Earlier " + i + "\",\"credits\":3,\"typeId\":" + type.getId() + "}"))
+                .andExpect(status().isCreated());
+        }
+    }
+
+    @Test
+    void registersEachItemOnItsOwnAndAnswersInRequestOrder() throws Exception {
+        long lastEvent = lastChangeEventId();
+        String items = "[" + String.join(",",
+            item(ada.getId(), course("Algebra", 3)),
+            item(alan.getId(), course("Logic", 4)),
+            item(ada.getId(), course("Geometry", 3)),
+            item(ada.getId() + alan.getId() + 1000, course("Nowhere", 3)),
+            item(ada.getId(), course("", 3)),
+            item(ada.getId(), course("Topology", 3)),
+            item(alan.getId(), "null"),
+            item(alan.getId(), course("Zero credits", 0)),
+            item(alan.getId(), course("Computability", 5))) + "]";
+
+        String body = mvc.perform(post("/students/courses/batch").contentType(MediaType.APPLICATION_JSON).content(items))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(9))
+            .andExpect(jsonPath("$[*].index").value(contains(0, 1, 2, 3, 4, 5, 6, 7, 8)))
+            .andExpect(jsonPath("$[*].studentId").value(contains(ada.getId(), alan.getId(), ada.getId(),
+                ada.getId() + alan.getId() + 1000, ada.getId(), ada.getId(), alan.getId(), alan.getId(), alan.getId())))
+            .andExpect(jsonPath("$[0].error").value(nullValue()))
+            .andExpect(jsonPath("$[1].error").value(nullValue()))
+            .andExpect(jsonPath("$[2].error").value(nullValue()))
+            .andExpect(jsonPath("$[3].error").value("Student " + (ada.getId() + alan.getId() + 1000) + " not found"))
+            .andExpect(jsonPath("$[4].error").value(startsWith("title ")))
+            .andExpect(jsonPath("$[5].error").value("Student cannot register for more than "
+                + CourseResource.MAX_COURSES_PER_STUDENT + " courses per semester"))
+            .andExpect(jsonPath("$[6].error").value("course is required"))
+            .andExpect(jsonPath("$[7].error").value(startsWith("credits ")))
+            .andExpect(jsonPath("$[8].error").value(nullValue()))
+            .andReturn().getResponse().getContentAsString();
+
+        List<Integer> courseIds = JsonPath.read(body, "$[*].courseId");
+        assertThat(courseIds.subList(3, 8)).containsOnlyNulls();
+        List<Integer> registered = IntStream.of(0, 1, 2, 8).mapToObj(courseIds::get).toList();
+        assertThat(registered).doesNotContainNull().doesNotHaveDuplicates();
+
+        assertThat(courseRepository.findByStudentId(ada.getId())).extracting(Course::getTitle)
+            .hasSize(CourseResource.MAX_COURSES_PER_STUDENT).contains("Algebra", "Geometry").doesNotContain("Topology");
+        assertThat(courseRepository.findByStudentId(alan.getId()))
+            .extracting(Course::getId, Course::getTitle, course -> course.getType().getName())
+            .containsExactlyInAnyOrder(
+                tuple(courseIds.get(1), "Logic", "seminar"),
+                tuple(courseIds.get(8), "Computability", "seminar"));
+        assertThat(studentRepository.findById(ada.getId()).orElseThrow().getCourseCount())
+            .isEqualTo(CourseResource.MAX_COURSES_PER_STUDENT);
+        assertThat(studentRepository.findById(alan.getId()).orElseThrow().getCourseCount()).isEqualTo(2);
+
+        List<ChangeEvent> events = changeEventRepository.findAll().stream()
+            .filter(event -> event.getId() > lastEvent)
+            .toList();
+        assertThat(events).allSatisfy(event -> {
+            assertThat(event.getAggregateType()).isEqualTo(ChangeLog.COURSE);
+            assertThat(event.getEventType()).isEqualTo(ChangeLog.CREATED);
+        });
+        assertThat(events).extracting(ChangeEvent::getAggregateId).containsExactlyInAnyOrderElementsOf(registered);
+    }
+
+    @Test
+    void rejectsBatchesOverTheMaximumSize() throws Exception {
+        String items = IntStream.rangeClosed(0, CourseResource.MAX_BATCH_SIZE)
+            .mapToObj(i -> item(ada.getId(), course("Course " + i, 3)))
+            .collect(Collectors.joining(",", "[", "]"));
+
+        mvc.perform(post("/students/courses/batch").contentType(MediaType.APPLICATION_JSON).content(items))
+            .andExpect(status().isBadRequest());
+
+        assertThat(courseRepository.countByStudentId(ada.getId())).isEqualTo(ALREADY_REGISTERED);
+    }
+
+    private Student saveStudent(String firstName, String lastName, String studentId) {
+        Student student = new Student();
+        student.setFirstName(firstName);
+        student.setLastName(lastName);
+        student.setStudentId(studentId);
+        return studentRepository.save(student);
+    }
+
+    private long lastChangeEventId() {
+        return changeEventRepository.findAll().stream()
+            .map(ChangeEvent::getId)
+            .filter(Objects::nonNull)
+            .max(Long::compare)
+            .orElse(0L);
+    }
+
+    private static String item(int studentId, String course) {
+        return "{\"studentId\":" + studentId + ",\"course\":" + course + "}";
+    }
+
+    private String course(String title, int credits) {
+        return "{\"id\":0,\"title\":\"" + title + "\",\"credits\":" + credits + ",\"typeId\":" + type.getId() + "}";
+    }
+}
@@ -0,0 +1,104 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.samples.petclinic.customers.model.Course;
+import org.springframework.samples.petclinic.customers.model.CourseRepository;
+import org.springframework.samples.petclinic.customers.model.CourseType;
+import org.springframework.samples.petclinic.customers.model.CourseTypeCache;
+import org.springframework.samples.petclinic.customers.model.Student;
+import org.springframework.samples.petclinic.customers.model.StudentRepository;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.sql.init.mode=never",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("test")
+class CourseResourceQueryCountTest {
+
+    @Autowired
+    CourseResource courseResource;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    CourseRepository courseRepository;
+
+    @Autowired
+    CourseTypeCache courseTypeCache;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private Student student;
+    private Course firstCourse;
+
+    @BeforeEach
+    void setUp() {
+        courseRepository.deleteAll();
+        studentRepository.deleteAll();
+
+        student = new Student();
+        student.setFirstName("Ada");
+        student.setLastName("Lovelace");
+        student.setStudentId("STU-QC");
+        student = studentRepository.save(student);
+
+        for (int i = 0; i < 5; i++) {
+            CourseType type = new CourseType();
+            type.setName("type " + i);
+            // Saved through the cache so it is invalidated, whatever earlier tests already loaded
+            type = courseTypeCache.save(type);
+
+            Course course = new Course();
+            course.setTitle("Course " + i);
+            course.setCredits(3);
+            course.setStudent(student);
+            course.setType(type);
+            course = courseRepository.save(course);
+            if (i == 0) {
+                firstCourse = course;
+            }
+        }
+        // Warm up the course type cache, which is not what is being measured
+        courseResource.getCourseTypes();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findCourseRunsOneStatement() {
+        CourseDetails details = courseResource.findCourse(firstCourse.getId());
+
+        assertThat(details.student()).isEqualTo("Ada Lovelace");
+        assertThat(details.title()).isEqualTo("Course 0");
+        assertThat(details.type().getName()).isEqualTo("type 0");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void getStudentCoursesRunsOneStatement() {
+        List<Course> courses = courseResource.getStudentCourses(student.getId());
+
+        assertThat(courses).hasSize(5)
+            .allSatisfy(course -> {
+                assertThat(course.getStudent().getLastName()).isEqualTo("Lovelace");
+                assertThat(course.getType()).isNotNull();
+            });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,125 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.samples.petclinic.customers.model.CourseCountBackfill;
+import org.springframework.samples.petclinic.customers.model.CourseRepository;
+import org.springframework.samples.petclinic.customers.model.CourseType;
+import org.springframework.samples.petclinic.customers.model.CourseTypeCache;
+import org.springframework.samples.petclinic.customers.model.Student;
+import org.springframework.samples.petclinic.customers.model.StudentRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.sql.init.mode=never"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CourseResourceRegistrationTest {
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    CourseRepository courseRepository;
+
+    @Autowired
+    CourseTypeCache courseTypeCache;
+
+    @Autowired
+    CourseCountBackfill courseCountBackfill;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private Student student;
+    private CourseType type;
+
+    @BeforeEach
+    void setUp() {
+        courseRepository.deleteAll();
+        studentRepository.deleteAll();
+
+        student = new Student();
+        student.setFirstName("Grace");
+        student.setLastName("Hopper");
+        student.setStudentId("STU-REG");
+        student = studentRepository.save(student);
+
+        type = new CourseType();
+        type.setName("lecture");
+        type = courseTypeCache.save(type);
+    }
+
+    @Test
+    void registersCourseAndReturnsItsStudent() throws Exception {
+        register(student.getId(), "Compilers")
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.title").value("Compilers"))
+            .andExpect(jsonPath("$.type.name").value("lecture"))
+            .andExpect(jsonPath("$.student.id").value(student.getId()))
+            .andExpect(jsonPath("$.student.lastName").value("Hopper"));
+
+        assertThat(courseRepository.findByStudentId(student.getId())).hasSize(1);
+        assertThat(studentRepository.findById(student.getId()).orElseThrow().getCourseCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsRegistrationsOverTheLimit() throws Exception {
+        for (int i = 0; i < CourseResource.MAX_COURSES_PER_STUDENT; i++) {
+            register(student.getId(), "Course " + i).andExpect(status().isCreated());
+        }
+
+        register(student.getId(), "One too many").andExpect(status().isConflict());
+
+        assertThat(courseRepository.findByStudentId(student.getId())).hasSize(CourseResource.MAX_COURSES_PER_STUDENT);
+        assertThat(studentRepository.findById(student.getId()).orElseThrow().getCourseCount())
+            .isEqualTo(CourseResource.MAX_COURSES_PER_STUDENT);
+    }
+
+    @Test
+    void rejectsRegistrationsForUnknownStudents() throws Exception {
+        register(student.getId() + 1000, "Compilers").andExpect(status().isNotFound());
+
+        assertThat(courseRepository.count()).isZero();
+    }
+
+    @Test
+    void keepsTheLimitForCoursesRegisteredBeforeTheCountExisted() throws Exception {
+        // Courses written without taking slots, as in a database predating the count
+        for (int i = 0; i < CourseResource.MAX_COURSES_PER_STUDENT; i++) {
+            jdbcTemplate.update("INSERT INTO courses (title, credits, student_id) VALUES (?, 3, ?)", "Legacy " + i, student.getId());
+        }
+        assertThat(studentRepository.findById(student.getId()).orElseThrow().getCourseCount()).isZero();
+
+        assertThat(courseCountBackfill.backfill()).isEqualTo(1);
+        assertThat(courseCountBackfill.backfill()).isZero();
+        register(student.getId(), "One too many").andExpect(status().isConflict());
+
+        assertThat(courseRepository.countByStudentId(student.getId())).isEqualTo(CourseResource.MAX_COURSES_PER_STUDENT);
+        assertThat(studentRepository.findById(student.getId()).orElseThrow().getCourseCount())
+            .isEqualTo(CourseResource.MAX_COURSES_PER_STUDENT);
+    }
+
+    private ResultActions register(int studentId, String title) throws Exception {
+        return mvc.perform(post("/students/{studentId}/courses", studentId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{\"id\":0,\"title\":\"" + title + "\",\"credits\":3,\"typeId\":" + type.getId() + "}"));
+    }
+}
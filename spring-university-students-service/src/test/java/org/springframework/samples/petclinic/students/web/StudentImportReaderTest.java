@@ -0,0 +1,95 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StudentImportReaderTest {
+
+    private static final String HEADER = "firstName,lastName,studentId,email,department\n";
+
+    @Test
+    void csvMapsColumnsByHeaderName() {
+        List<StudentImportReader.Row> rows = csv("\uFEFFStudentId, LASTNAME ,firstname,unknown\nSTU001,Martin,Alice,x\n");
+
+        assertThat(rows).singleElement().satisfies(row -> {
+            assertThat(row.error()).isNull();
+            assertThat(row.request()).isEqualTo(new StudentRequest("Alice", "Martin", "STU001", null, null));
+        });
+    }
+
+    @Test
+    void csvReadsQuotedFieldsAndEscapedQuotes() {
+        List<StudentImportReader.Row> rows = csv(HEADER
+            + "\"Alice\",\"Martin, Jr.\",STU001,,\"The \"\"Applied\"\" Maths\"\n"
+            + "\"\",Moreau,STU002,\"\",Physics\n");
+
+        assertThat(rows).extracting(StudentImportReader.Row::request).containsExactly(
+            new StudentRequest("Alice", "Martin, Jr.", "STU001", null, "The \"Applied\" Maths"),
+            new StudentRequest(null, "Moreau", "STU002", null, "Physics"));
+    }
+
+    @Test
+    void csvReadsEmbeddedNewlinesAndReportsTheLineEachRowStartsOn() {
+        List<StudentImportReader.Row> rows = csv(HEADER
+            + "Alice,Martin,STU001,,\"Computer\nScience\"\r\n"
+            + "\r\n"
+            + "Bob,Martins,STU003,bob@tbs.edu,\"Line one\r\nLine two\nLine three\"\n"
+            + "Carol,Shaw,STU004,,");
+
+        assertThat(rows).extracting(StudentImportReader.Row::line).containsExactly(2L, 5L, 8L);
+        assertThat(rows.get(0).request().department()).isEqualTo("Computer\nScience");
+        assertThat(rows.get(1).request().department()).isEqualTo("Line one\r\nLine two\nLine three");
+        assertThat(rows.get(2).request().studentId()).isEqualTo("STU004");
+    }
+
+    @Test
+    void csvReportsMalformedRowsAndCarriesOn() {
+        List<StudentImportReader.Row> rows = csv(HEADER
+            + "Alice,\"Martin\"x,STU001,,\n"
+            + "Bob,Martins,STU003,,,extra\n"
+            + "Carol,Shaw,STU004,,\n"
+            + "Dave,\"Cutler,STU005,,\nEve,Smith,STU006,,\n");
+
+        assertThat(rows).extracting(StudentImportReader.Row::line).containsExactly(2L, 3L, 4L, 5L);
+        assertThat(rows).extracting(StudentImportReader.Row::error).containsExactly(
+            "Unexpected character after a closing quote",
+            "Expected at most 5 fields, found 6",
+            null,
+            "Unterminated quoted field");
+        assertThat(rows.get(2).request().firstName()).isEqualTo("Carol");
+    }
+
+    @Test
+    void csvWithoutRowsIsEmpty() {
+        assertThat(csv("")).isEmpty();
+        assertThat(csv(HEADER)).isEmpty();
+    }
+
+    @Test
+    void ndjsonSkipsBlankLinesAndReportsInvalidOnes() {
+        List<StudentImportReader.Row> rows = read(StudentImportReader.ndjson(new StringReader(
+            "{\"firstName\":\"Alice\",\"lastName\":\"Martin\",\"studentId\":\"STU001\"}\n"
+                + "\n"
+                + "{\"firstName\":\n"), JsonMapper.builder().build()));
+
+        assertThat(rows).extracting(StudentImportReader.Row::line).containsExactly(1L, 3L);
+        assertThat(rows.get(0).request()).isEqualTo(new StudentRequest("Alice", "Martin", "STU001", null, null));
+        assertThat(rows.get(1).error()).startsWith("Invalid JSON");
+    }
+
+    private static List<StudentImportReader.Row> csv(String content) {
+        return read(StudentImportReader.csv(new StringReader(content)));
+    }
+
+    private static List<StudentImportReader.Row> read(StudentImportReader reader) {
+        List<StudentImportReader.Row> rows = new ArrayList<>();
+        reader.forEachRemaining(rows::add);
+        return rows;
+    }
+}
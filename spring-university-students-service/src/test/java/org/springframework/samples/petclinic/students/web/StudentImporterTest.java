@@ -0,0 +1,64 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.samples.petclinic.customers.model.CourseRepository;
+import org.springframework.samples.petclinic.customers.model.Student;
+import org.springframework.samples.petclinic.customers.model.StudentRepository;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+@SpringBootTest(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.sql.init.mode=never"
+})
+@ActiveProfiles("test")
+class StudentImporterTest {
+
+    @Autowired
+    StudentImporter studentImporter;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    CourseRepository courseRepository;
+
+    @BeforeEach
+    void setUp() {
+        courseRepository.deleteAll();
+        studentRepository.deleteAll();
+    }
+
+    @Test
+    void reportsRejectedRowsWithoutDatabaseDetails() {
+        String tooLong = "x".repeat(300);
+        List<StudentImporter.Event> events = new ArrayList<>();
+
+        StudentImporter.Event summary = studentImporter.importStudents(StudentImportReader.csv(new StringReader(
+            "firstName,lastName,studentId,department\n"
+                + "Alice,Martin,IMP001,Maths\n"
+                + "Bob,Martins,IMP002," + tooLong + "\n"
+                + "Carol,,IMP003,Physics\n"
+                + "Dave,Cutler,IMP001,Physics\n")), events::add);
+
+        assertThat(summary.processed()).isEqualTo(4);
+        assertThat(summary.imported()).isEqualTo(1);
+        assertThat(summary.failed()).isEqualTo(3);
+        assertThat(events).filteredOn(event -> "error".equals(event.type()))
+            .extracting(StudentImporter.Event::line, StudentImporter.Event::error)
+            .containsExactly(
+                tuple(3L, "Could not save student"),
+                tuple(4L, "lastName must not be blank"),
+                tuple(5L, "Duplicate student id IMP001 in file"));
+        assertThat(studentRepository.findAll()).extracting(Student::getStudentId).containsExactly("IMP001");
+    }
+}
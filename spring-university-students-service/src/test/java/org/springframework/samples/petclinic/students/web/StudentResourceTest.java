@@ -0,0 +1,194 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.samples.petclinic.customers.model.CourseRepository;
+import org.springframework.samples.petclinic.customers.model.Student;
+import org.springframework.samples.petclinic.customers.model.StudentRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.sql.init.mode=never",
+    "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class StudentResourceTest {
+
+    private static final int STUDENTS = 3 * StudentResource.LOOKUP_CHUNK_SIZE / 2;
+
+    @Autowired
+    MockMvc mvc;
+
+    @Autowired
+    StudentRepository studentRepository;
+
+    @Autowired
+    CourseRepository courseRepository;
+
+    @Autowired
+    JsonMapper jsonMapper;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    private List<Integer> ids;
+
+    @BeforeEach
+    void setUp() {
+        courseRepository.deleteAll();
+        studentRepository.deleteAll();
+
+        List<Student> students = new ArrayList<>(STUDENTS);
+        for (int i = 0; i < STUDENTS; i++) {
+            Student student = new Student();
+            student.setFirstName("First" + i);
+            student.setLastName("Last" + i);
+            student.setStudentId("STU-RES-" + i);
+            students.add(student);
+        }
+        ids = studentRepository.saveAll(students).stream().map(Student::getId).sorted().toList();
+    }
+
+    @Test
+    void streamsEveryStudentAsOneJsonArray() throws Exception {
+        MvcResult streaming = mvc.perform(get("/students"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        String body = mvc.perform(asyncDispatch(streaming))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+            .andReturn().getResponse().getContentAsString();
+
+        JsonNode students = jsonMapper.readTree(body);
+        assertThat(students.isArray()).isTrue();
+        List<Integer> streamed = new ArrayList<>();
+        students.forEach(student -> streamed.add(student.get("id").asInt()));
+        assertThat(streamed).containsExactlyElementsOf(ids);
+        assertThat(students.get(0).get("lastName").asString()).isEqualTo("Last0");
+    }
+
+    @Test
+    void pagesThroughEveryStudentOnceInIdOrder() throws Exception {
+        int size = STUDENTS / 3;
+        List<Integer> paged = new ArrayList<>();
+        int after = 0;
+        for (int page = 0; page < 3; page++) {
+            JsonNode body = jsonMapper.readTree(mvc.perform(get("/students")
+                    .param("after", Integer.toString(after))
+                    .param("size", Integer.toString(size)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+            JsonNode items = body.get("items");
+            assertThat(items.size()).isEqualTo(size);
+            items.forEach(student -> paged.add(student.get("id").asInt()));
+            assertThat(body.get("next").asInt()).isEqualTo(paged.get(paged.size() - 1));
+            after = body.get("next").asInt();
+        }
+        assertThat(paged).containsExactlyElementsOf(ids);
+
+        mvc.perform(get("/students").param("after", Integer.toString(after)).param("size", Integer.toString(size)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items").isEmpty())
+            .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    void rejectsPageSizesOutOfRange() throws Exception {
+        mvc.perform(get("/students").param("size", "0"))
+            .andExpect(status().isBadRequest());
+        mvc.perform(get("/students").param("size", Integer.toString(StudentResource.MAX_PAGE_SIZE + 1)))
+            .andExpect(status().isBadRequest());
+        mvc.perform(get("/students").param("size", Integer.toString(StudentResource.MAX_PAGE_SIZE)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.items.length()").value(STUDENTS))
+            .andExpect(jsonPath("$.next").doesNotExist());
+    }
+
+    @Test
+    void looksStudentsUpInRequestOrderWithMarkersForMissingIds() throws Exception {
+        int missing = ids.get(ids.size() - 1) + 1;
+
+        mvc.perform(get("/students").param("ids", ids.get(2) + "," + missing + "," + ids.get(0) + "," + ids.get(2)))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(4))
+            .andExpect(jsonPath("$[0].id").value(ids.get(2)))
+            .andExpect(jsonPath("$[0].found").value(true))
+            .andExpect(jsonPath("$[0].student.lastName").value("Last2"))
+            .andExpect(jsonPath("$[1].id").value(missing))
+            .andExpect(jsonPath("$[1].found").value(false))
+            .andExpect(jsonPath("$[1].student").doesNotExist())
+            .andExpect(jsonPath("$[2].student.id").value(ids.get(0)))
+            .andExpect(jsonPath("$[3].student.id").value(ids.get(2)));
+    }
+
+    @Test
+    void looksUpMoreStudentsThanOneChunkInRequestOrder() throws Exception {
+        int missing = ids.get(ids.size() - 1) + 1;
+        // Every student in reverse order, then as many missing ids, which makes several chunks
+        List<Integer> requested = new ArrayList<>(ids);
+        Collections.reverse(requested);
+        IntStream.range(0, STUDENTS).forEach(i -> requested.add(missing + i));
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        String body = mvc.perform(post("/students/lookup")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(jsonMapper.writeValueAsString(requested)))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+
+        JsonNode results = jsonMapper.readTree(body);
+        assertThat(results.size()).isEqualTo(requested.size());
+        for (int i = 0; i < requested.size(); i++) {
+            JsonNode result = results.get(i);
+            boolean found = i < STUDENTS;
+            assertThat(result.get("id").asInt()).isEqualTo(requested.get(i));
+            assertThat(result.get("found").asBoolean()).isEqualTo(found);
+            if (found) {
+                assertThat(result.get("student").get("id").asInt()).isEqualTo(requested.get(i));
+            }
+        }
+        int chunks = (requested.size() + StudentResource.LOOKUP_CHUNK_SIZE - 1) / StudentResource.LOOKUP_CHUNK_SIZE;
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(chunks);
+    }
+
+    @Test
+    void rejectsLookupsOfTooManyIds() throws Exception {
+        String requested = IntStream.rangeClosed(1, StudentResource.MAX_LOOKUP_IDS + 1)
+            .mapToObj(Integer::toString)
+            .collect(Collectors.joining(","));
+
+        mvc.perform(post("/students/lookup").contentType(MediaType.APPLICATION_JSON).content("[" + requested + "]"))
+            .andExpect(status().isBadRequest());
+        mvc.perform(get("/students").param("ids", requested))
+            .andExpect(status().isBadRequest());
+    }
+}
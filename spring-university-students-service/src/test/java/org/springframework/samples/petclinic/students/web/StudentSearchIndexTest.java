@@ -0,0 +1,115 @@
+package org.springframework.samples.petclinic.customers.web;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.samples.petclinic.customers.model.Student;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StudentSearchIndexTest {
+
+    private final StudentSearchIndex index = new StudentSearchIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.index(student(1, "Alice", "Martin", "STU001", "alice.martin@tbs.edu"));
+        index.index(student(2, "Alicia", "Moreau", "STU002", "alicia.moreau@tbs.edu"));
+        index.index(student(3, "Bob", "Martins", "STU003", "bob@tbs.edu"));
+    }
+
+    @Test
+    void ranksExactMatchesBeforePrefixMatches() {
+        assertThat(ids(index.search("alic", 10))).containsExactly(1, 2);
+        assertThat(ids(index.search("martin", 10))).containsExactly(1, 3);
+    }
+
+    @Test
+    void requiresEveryQueryTerm() {
+        assertThat(ids(index.search("ali mor", 10))).containsExactly(2);
+        assertThat(ids(index.search("bob moreau", 10))).isEmpty();
+    }
+
+    @Test
+    void toleratesOneTypo() {
+        assertThat(ids(index.search("moraeu", 10))).containsExactly(2);
+        assertThat(ids(index.search("martim", 10))).containsExactly(1);
+        assertThat(ids(index.search("mrtin", 10))).containsExactly(1);
+    }
+
+    @Test
+    void matchesStudentIdAndEmail() {
+        // The other ids are one typo away, so they follow the exact match
+        assertThat(ids(index.search("stu003", 10))).containsExactly(3, 1, 2);
+        assertThat(ids(index.search("bob@tbs.edu", 10))).containsExactly(3);
+        assertThat(ids(index.search("alice.martin@tbs.edu", 10))).containsExactly(1);
+        assertThat(ids(index.search("alicia.moreau", 10))).containsExactly(2);
+    }
+
+    @Test
+    void indexesOnlyOnceTheTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            index.indexAfterCommit(student(4, "Carol", "Shaw", "STU004", "carol@tbs.edu"));
+            assertThat(index.search("carol", 10)).isEmpty();
+
+            TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+            assertThat(ids(index.search("carol", 10))).containsExactly(4);
+
+            index.indexAfterCommit(student(5, "Dave", "Cutler", "STU005", "dave@tbs.edu"));
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                TransactionSynchronization.STATUS_ROLLED_BACK);
+            assertThat(index.search("dave", 10)).isEmpty();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void reindexingReplacesOldTerms() {
+        index.index(student(3, "Robert", "Martins", "STU003", "bob@tbs.edu"));
+
+        assertThat(ids(index.search("robert", 10))).containsExactly(3);
+        assertThat(ids(index.search("bob", 10))).containsExactly(3);
+        assertThat(index.search("robert", 10).get(0).getFirstName()).isEqualTo("Robert");
+
+        index.remove(3);
+        assertThat(index.search("robert", 10)).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    void limitsResults() {
+        assertThat(index.search("tbs", 2)).hasSize(2);
+        assertThat(index.search("  ", 10)).isEmpty();
+    }
+
+    @Test
+    void detectsSingleEdits() {
+        assertThat(StudentSearchIndex.withinOneEdit("martin", "martin")).isTrue();
+        assertThat(StudentSearchIndex.withinOneEdit("martin", "marten")).isTrue();
+        assertThat(StudentSearchIndex.withinOneEdit("martin", "matrin")).isTrue();
+        assertThat(StudentSearchIndex.withinOneEdit("martin", "martins")).isTrue();
+        assertThat(StudentSearchIndex.withinOneEdit("martin", "artin")).isTrue();
+        assertThat(StudentSearchIndex.withinOneEdit("martin", "mratni")).isFalse();
+        assertThat(StudentSearchIndex.withinOneEdit("martin", "mart")).isFalse();
+    }
+
+    private static List<Integer> ids(List<Student> students) {
+        return students.stream().map(Student::getId).toList();
+    }
+
+    private static Student student(int id, String firstName, String lastName, String studentId, String email) {
+        Student student = new Student();
+        student.setId(id);
+        student.setFirstName(firstName);
+        student.setLastName(lastName);
+        student.setStudentId(studentId);
+        student.setEmail(email);
+        return student;
+    }
+}